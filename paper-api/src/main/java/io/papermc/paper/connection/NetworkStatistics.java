@@ -0,0 +1,79 @@
+package io.papermc.paper.connection;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * A snapshot of the network statistics of a player's connection, or of all connections of the server.
+ * <p>
+ * Round trip times are measured from the keepalives sent to the client over roughly the last minute. Unlike
+ * {@link org.bukkit.entity.Player#getPing()}, they are not averaged, so the percentiles show how stable a
+ * connection is. Throughput is measured at the socket over the last second. For the statistics of the server,
+ * round trip times are taken over the samples of all players, and everything else is summed up over all players,
+ * except for the flush latency, which is averaged.
+ */
+@ApiStatus.NonExtendable
+public interface NetworkStatistics {
+
+    /**
+     * Gets the median round trip time.
+     *
+     * @return the median round trip time, in milliseconds, or {@code 0} if there are no samples yet
+     */
+    double roundTripTimeMedian();
+
+    /**
+     * Gets the 95th percentile of the round trip time.
+     *
+     * @return the 95th percentile of the round trip time, in milliseconds, or {@code 0} if there are no samples yet
+     */
+    double roundTripTime95thPercentile();
+
+    /**
+     * Gets the 99th percentile of the round trip time.
+     *
+     * @return the 99th percentile of the round trip time, in milliseconds, or {@code 0} if there are no samples yet
+     */
+    double roundTripTime99thPercentile();
+
+    /**
+     * Gets the number of round trip time samples the percentiles are computed from.
+     *
+     * @return the number of samples
+     */
+    int roundTripTimeSamples();
+
+    /**
+     * Gets the number of bytes received in the last second.
+     *
+     * @return the bytes received per second
+     */
+    double bytesReceivedPerSecond();
+
+    /**
+     * Gets the number of bytes sent in the last second.
+     *
+     * @return the bytes sent per second
+     */
+    double bytesSentPerSecond();
+
+    /**
+     * Gets the number of packets waiting to be written to the socket.
+     *
+     * @return the number of queued packets
+     */
+    int queuedPackets();
+
+    /**
+     * Gets the number of bytes waiting to be written to the socket.
+     *
+     * @return the number of queued bytes
+     */
+    long queuedBytes();
+
+    /**
+     * Gets the time it last took for packets to be written to the socket after they were flushed.
+     *
+     * @return the flush latency, in milliseconds
+     */
+    double flushLatency();
+}
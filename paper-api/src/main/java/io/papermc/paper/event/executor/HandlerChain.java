@@ -0,0 +1,41 @@
+package io.papermc.paper.event.executor;
+
+import org.bukkit.event.Event;
+import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.ApiStatus;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * The baked listeners of a {@link org.bukkit.event.HandlerList}, compiled into a single chain of calls.
+ *
+ * @see HandlerChainFactory
+ */
+@ApiStatus.Internal
+@NullMarked
+public interface HandlerChain {
+
+    /**
+     * Calls the listeners of the chain, in order of their priority. Listeners of disabled plugins are skipped, and
+     * listeners ignoring cancelled events are skipped while the event is cancelled.
+     *
+     * @param event the event
+     */
+    void callEvent(Event event);
+
+    /**
+     * Handles the exceptions thrown by the listeners of a chain. The chain continues with the next listener once
+     * the exception is handled.
+     */
+    @FunctionalInterface
+    interface ExceptionHandler {
+
+        /**
+         * Handles an exception thrown by a listener.
+         *
+         * @param registration the listener that threw the exception
+         * @param event        the event passed to the listener
+         * @param throwable    the exception
+         */
+        void handle(RegisteredListener registration, Event event, Throwable throwable);
+    }
+}
@@ -0,0 +1,113 @@
+package io.papermc.paper.event.executor;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.ApiStatus;
+import org.jspecify.annotations.NullMarked;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+
+@ApiStatus.Internal
+@NullMarked
+public final class HandlerChainFactory {
+    private static final byte[] TEMPLATE_CLASS_BYTES;
+    private static final MethodType CHAIN_TYPE = MethodType.methodType(void.class, Event.class);
+    private static final MethodHandle EMPTY = MethodHandles.empty(CHAIN_TYPE);
+    private static final MethodHandle EXECUTE;
+    private static final MethodHandle CALL_EVENT;
+    private static final MethodHandle IS_ENABLED;
+    private static final MethodHandle IS_CANCELLED;
+    private static final MethodHandle HANDLE_EXCEPTION;
+
+    static {
+        try (final InputStream is = HandlerChainFactory.class.getResourceAsStream("HandlerChainTemplate.class")) {
+            TEMPLATE_CLASS_BYTES = Objects.requireNonNull(is, "template class is missing").readAllBytes();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            EXECUTE = lookup.findVirtual(EventExecutor.class, "execute", MethodType.methodType(void.class, Listener.class, Event.class));
+            CALL_EVENT = lookup.findVirtual(RegisteredListener.class, "callEvent", CHAIN_TYPE);
+            IS_ENABLED = lookup.findVirtual(Plugin.class, "isEnabled", MethodType.methodType(boolean.class));
+            IS_CANCELLED = lookup.findStatic(HandlerChainFactory.class, "isCancelled", MethodType.methodType(boolean.class, Event.class));
+            HANDLE_EXCEPTION = lookup.findVirtual(HandlerChain.ExceptionHandler.class, "handle", MethodType.methodType(void.class, RegisteredListener.class, Event.class, Throwable.class));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private HandlerChainFactory() {
+
+    }
+
+    /**
+     * {@return a {@link HandlerChain} implemented by a hidden class calling the specified listeners}
+     * <p>
+     * Every listener of the chain is called through a method handle bound to its executor and listener, guarded by
+     * whether its plugin is enabled and, only for listeners ignoring cancelled events, whether the event is
+     * cancelled. The handles are combined as a balanced tree rather than one after another, so the depth the JIT
+     * has to inline the chain to grows with the logarithm of its listeners instead of with their number.
+     *
+     * @param listeners        the listeners to call, in order
+     * @param exceptionHandler the handler of the exceptions thrown by the listeners
+     */
+    public static HandlerChain create(final RegisteredListener[] listeners, final HandlerChain.ExceptionHandler exceptionHandler) {
+        final MethodHandle[] handles = new MethodHandle[listeners.length];
+        for (int i = 0; i < listeners.length; ++i) {
+            handles[i] = handle(listeners[i], exceptionHandler);
+        }
+        final MethodHandle chain = handles.length == 0 ? EMPTY : chain(handles, 0, handles.length);
+        try {
+            final MethodHandles.Lookup newClass = MethodHandles.lookup().defineHiddenClassWithClassData(TEMPLATE_CLASS_BYTES, chain, true);
+            return newClass.lookupClass().asSubclass(HandlerChain.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static MethodHandle handle(final RegisteredListener registration, final HandlerChain.ExceptionHandler exceptionHandler) {
+        MethodHandle call;
+        if (registration.getClass() == RegisteredListener.class) {
+            call = MethodHandles.insertArguments(EXECUTE, 0, registration.getExecutor(), registration.getListener());
+            if (registration.isIgnoringCancelled()) {
+                call = MethodHandles.guardWithTest(IS_CANCELLED, EMPTY, call);
+            }
+        } else {
+            // subclasses, such as TimedRegisteredListener, may override how they are called
+            call = CALL_EVENT.bindTo(registration);
+        }
+
+        // (Event, Throwable)void -> (Throwable, Event)void
+        final MethodHandle handleException = MethodHandles.permuteArguments(
+            MethodHandles.insertArguments(HANDLE_EXCEPTION, 0, exceptionHandler, registration),
+            MethodType.methodType(void.class, Throwable.class, Event.class),
+            1, 0
+        );
+        call = MethodHandles.catchException(call, Throwable.class, handleException);
+
+        final MethodHandle isEnabled = MethodHandles.dropArguments(IS_ENABLED.bindTo(registration.getPlugin()), 0, Event.class);
+        return MethodHandles.guardWithTest(isEnabled, call, EMPTY);
+    }
+
+    private static MethodHandle chain(final MethodHandle[] handles, final int from, final int to) {
+        if (to - from == 1) {
+            return handles[from];
+        }
+        final int mid = (from + to) >>> 1;
+        // calls the first half, then the second half
+        return MethodHandles.foldArguments(chain(handles, mid, to), chain(handles, from, mid));
+    }
+
+    private static boolean isCancelled(final Event event) {
+        return event instanceof Cancellable cancellable && cancellable.isCancelled();
+    }
+}
@@ -0,0 +1,47 @@
+package io.papermc.paper.event.executor;
+
+import com.destroystokyo.paper.util.SneakyThrow;
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.ApiStatus;
+import org.jspecify.annotations.NullMarked;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * This class is designed to be used as hidden class template.
+ * Initializing the class directly will fail due to missing {@code classData}.
+ * Instead, {@link java.lang.invoke.MethodHandles.Lookup#defineHiddenClassWithClassData(byte[], Object, boolean, MethodHandles.Lookup.ClassOption...)}
+ * must be used, with the {@code classData} object being a {@link MethodHandle} of the type {@code (Event)void}
+ * calling the listeners of the chain.
+ * As the handle is a constant of the hidden class, the JIT compiles the calls of the whole chain into the
+ * {@link #callEvent(Event)} method of that class.
+ */
+@SuppressWarnings("unused")
+@ApiStatus.Internal
+@NullMarked
+class HandlerChainTemplate implements HandlerChain {
+    private static final MethodHandle CHAIN;
+
+    static {
+        try {
+            CHAIN = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public void callEvent(final Event event) {
+        try {
+            CHAIN.invokeExact(event);
+        } catch (Throwable t) {
+            SneakyThrow.sneaky(t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerChainTemplate['" + CHAIN + "']";
+    }
+}
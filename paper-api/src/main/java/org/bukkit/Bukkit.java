@@ -2466,6 +2466,22 @@ public final class Bukkit {
     }
     // Paper end
 
+    // Paper start - network statistics
+    /**
+     * Gets a snapshot of the network statistics of all players' connections.
+     * <p>
+     * The online players are collected on the main thread, so calling this from
+     * another thread blocks until the main thread has done so.
+     *
+     * @return the network statistics of the server
+     * @see Player#getNetworkStatistics()
+     */
+    @org.jetbrains.annotations.ApiStatus.Experimental
+    public static io.papermc.paper.connection.@NotNull NetworkStatistics getNetworkStatistics() {
+        return server.getNetworkStatistics();
+    }
+    // Paper end - network statistics
+
     /**
      * Get the advancement specified by this key.
      *
@@ -2148,6 +2148,20 @@ public interface Server extends PluginMessageRecipient, net.kyori.adventure.audi
     double getAverageTickTime();
     // Paper end
 
+    // Paper start - network statistics
+    /**
+     * Gets a snapshot of the network statistics of all players' connections.
+     * <p>
+     * The online players are collected on the main thread, so calling this from
+     * another thread blocks until the main thread has done so.
+     *
+     * @return the network statistics of the server
+     * @see Player#getNetworkStatistics()
+     */
+    @org.jetbrains.annotations.ApiStatus.Experimental
+    io.papermc.paper.connection.@NotNull NetworkStatistics getNetworkStatistics();
+    // Paper end - network statistics
+
     // Paper start
     /**
      * Gets the active {@link org.bukkit.command.CommandMap}
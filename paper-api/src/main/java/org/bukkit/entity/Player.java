@@ -3305,6 +3305,17 @@ public interface Player extends HumanEntity, Conversable, OfflinePlayer, PluginM
      */
     public int getPing();
 
+    // Paper start - network statistics
+    /**
+     * Gets a snapshot of the network statistics of the player's connection, such as
+     * the distribution of their round trip time and their throughput.
+     *
+     * @return the network statistics of the player
+     */
+    @org.jetbrains.annotations.ApiStatus.Experimental
+    io.papermc.paper.connection.@org.jetbrains.annotations.NotNull NetworkStatistics getNetworkStatistics();
+    // Paper end - network statistics
+
     /**
      * Gets the player's current locale.
      *
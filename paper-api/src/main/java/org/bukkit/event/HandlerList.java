@@ -6,9 +6,13 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map.Entry;
+import io.papermc.paper.event.executor.HandlerChain;
+import io.papermc.paper.event.executor.HandlerChainFactory;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.RegisteredListener;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A list of event handlers, stored per-event. Based on lahwran's fevents.
@@ -21,6 +25,25 @@ public class HandlerList {
      */
     private volatile RegisteredListener[] handlers = null;
 
+    /**
+     * The baked handlers compiled into a single chain of calls, or null if
+     * handler chains are not compiled. Always written before the handlers
+     * array when baking.
+     */
+    private volatile @Nullable HandlerChain handlerChain = null;
+
+    /**
+     * Whether any listeners are registered. Unlike the handlers array, this
+     * is kept up to date on every change, so checking it never bakes.
+     */
+    private volatile boolean hasRegisteredListeners = false;
+
+    /**
+     * The handler of exceptions thrown by the listeners of compiled handler
+     * chains, or null if handler chains are not compiled.
+     */
+    private static volatile HandlerChain.@Nullable ExceptionHandler chainExceptionHandler = null;
+
     /**
      * Dynamic handler lists. These are changed using register() and
      * unregister() and are automatically baked to the handlers array any time
@@ -51,6 +74,26 @@ public class HandlerList {
         }
     }
 
+    /**
+     * Sets whether handler lists compile their baked handlers into a single
+     * chain of calls, and invalidates the baked handlers of all handler
+     * lists.
+     *
+     * @param exceptionHandler the handler of exceptions thrown by the
+     *     listeners of compiled handler chains, or null to not compile them
+     */
+    @ApiStatus.Internal
+    public static void compileHandlerChains(@Nullable HandlerChain.ExceptionHandler exceptionHandler) {
+        synchronized (allLists) {
+            chainExceptionHandler = exceptionHandler;
+            for (HandlerList h : allLists) {
+                synchronized (h) {
+                    h.handlers = null;
+                }
+            }
+        }
+    }
+
     /**
      * Unregister all listeners from all handler lists.
      */
@@ -62,6 +105,7 @@ public class HandlerList {
                         list.clear();
                     }
                     h.handlers = null;
+                    h.hasRegisteredListeners = false;
                 }
             }
         }
@@ -123,6 +167,7 @@ public class HandlerList {
             throw new IllegalStateException("This listener is already registered to priority " + listener.getPriority().toString());
         handlers = null;
         handlerslots.get(listener.getPriority()).add(listener);
+        hasRegisteredListeners = true;
     }
 
     /**
@@ -144,6 +189,7 @@ public class HandlerList {
     public synchronized void unregister(@NotNull RegisteredListener listener) {
         if (handlerslots.get(listener.getPriority()).remove(listener)) {
             handlers = null;
+            hasRegisteredListeners = countRegisteredListeners() != 0;
         }
     }
 
@@ -162,7 +208,10 @@ public class HandlerList {
                 }
             }
         }
-        if (changed) handlers = null;
+        if (changed) {
+            handlers = null;
+            hasRegisteredListeners = countRegisteredListeners() != 0;
+        }
     }
 
     /**
@@ -180,7 +229,18 @@ public class HandlerList {
                 }
             }
         }
-        if (changed) handlers = null;
+        if (changed) {
+            handlers = null;
+            hasRegisteredListeners = countRegisteredListeners() != 0;
+        }
+    }
+
+    private int countRegisteredListeners() {
+        int count = 0;
+        for (List<RegisteredListener> list : handlerslots.values()) {
+            count += list.size();
+        }
+        return count;
     }
 
     /**
@@ -192,7 +252,10 @@ public class HandlerList {
         for (Entry<EventPriority, ArrayList<RegisteredListener>> entry : handlerslots.entrySet()) {
             entries.addAll(entry.getValue());
         }
-        handlers = entries.toArray(new RegisteredListener[entries.size()]);
+        RegisteredListener[] baked = entries.toArray(new RegisteredListener[entries.size()]);
+        HandlerChain.ExceptionHandler exceptionHandler = chainExceptionHandler;
+        handlerChain = exceptionHandler == null ? null : HandlerChainFactory.create(baked, exceptionHandler);
+        handlers = baked;
     }
 
     /**
@@ -206,6 +269,32 @@ public class HandlerList {
         return handlers;
     }
 
+    /**
+     * Checks whether any listeners are registered to this handler list.
+     * <p>
+     * This is cheaper than checking the length of
+     * {@link #getRegisteredListeners()}, as it never bakes the handlers, and
+     * is meant to skip creating events nothing listens to.
+     *
+     * @return whether any listeners are registered
+     */
+    public boolean hasRegisteredListeners() {
+        return this.hasRegisteredListeners;
+    }
+
+    /**
+     * Get the baked registered listeners associated with this handler list,
+     * compiled into a single chain of calls
+     *
+     * @return the compiled handler chain, or null if handler chains are not
+     *     compiled
+     */
+    @ApiStatus.Internal
+    public @Nullable HandlerChain getHandlerChain() {
+        while (this.handlers == null) bake();
+        return this.handlerChain;
+    }
+
     /**
      * Get a specific plugin's registered listeners associated with this
      * handler list
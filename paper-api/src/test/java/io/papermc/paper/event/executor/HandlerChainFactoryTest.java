@@ -0,0 +1,134 @@
+package io.papermc.paper.event.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.TestPlugin;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class HandlerChainFactoryTest {
+
+    private static final HandlerChain.ExceptionHandler RETHROW = (registration, event, throwable) -> {
+        throw new AssertionError(throwable);
+    };
+
+    @Test
+    public void testEmptyChain() {
+        HandlerChainFactory.create(new RegisteredListener[0], RETHROW).callEvent(new TestCancellableEvent());
+    }
+
+    @Test
+    public void testOrder() {
+        final List<Integer> called = new ArrayList<>();
+        final TestPlugin plugin = new TestPlugin("Test");
+        final RegisteredListener[] listeners = new RegisteredListener[37];
+        for (int i = 0; i < listeners.length; ++i) {
+            final int index = i;
+            listeners[i] = listener(plugin, false, event -> called.add(index));
+        }
+
+        HandlerChainFactory.create(listeners, RETHROW).callEvent(new TestCancellableEvent());
+
+        assertEquals(listeners.length, called.size());
+        for (int i = 0; i < listeners.length; ++i) {
+            assertEquals(i, called.get(i));
+        }
+    }
+
+    @Test
+    public void testIgnoreCancelled() {
+        final List<String> called = new ArrayList<>();
+        final TestPlugin plugin = new TestPlugin("Test");
+        final RegisteredListener[] listeners = {
+            listener(plugin, true, event -> called.add("first")),
+            listener(plugin, false, event -> {
+                called.add("cancel");
+                ((Cancellable) event).setCancelled(true);
+            }),
+            listener(plugin, true, event -> called.add("ignoring")),
+            listener(plugin, false, event -> called.add("receiving"))
+        };
+
+        HandlerChainFactory.create(listeners, RETHROW).callEvent(new TestCancellableEvent());
+
+        assertEquals(List.of("first", "cancel", "receiving"), called);
+    }
+
+    @Test
+    public void testDisabledPlugin() {
+        final List<String> called = new ArrayList<>();
+        final TestPlugin enabled = new TestPlugin("Enabled");
+        final TestPlugin disabled = new TestPlugin("Disabled");
+        final RegisteredListener[] listeners = {
+            listener(disabled, false, event -> called.add("disabled")),
+            listener(enabled, false, event -> called.add("enabled"))
+        };
+        final HandlerChain chain = HandlerChainFactory.create(listeners, RETHROW);
+
+        disabled.setEnabled(false);
+        chain.callEvent(new TestCancellableEvent());
+        disabled.setEnabled(true);
+        chain.callEvent(new TestCancellableEvent());
+
+        assertEquals(List.of("enabled", "disabled", "enabled"), called);
+    }
+
+    @Test
+    public void testExceptionContinuesChain() {
+        final List<String> called = new ArrayList<>();
+        final List<Throwable> handled = new ArrayList<>();
+        final TestPlugin plugin = new TestPlugin("Test");
+        final RuntimeException exception = new RuntimeException("test");
+        final RegisteredListener throwing = listener(plugin, false, event -> {
+            throw exception;
+        });
+        final RegisteredListener[] listeners = {
+            throwing,
+            listener(plugin, false, event -> called.add("after"))
+        };
+
+        HandlerChainFactory.create(listeners, (registration, event, throwable) -> {
+            assertSame(throwing, registration);
+            handled.add(throwable);
+        }).callEvent(new TestCancellableEvent());
+
+        assertEquals(List.of(exception), handled);
+        assertEquals(List.of("after"), called);
+    }
+
+    private static RegisteredListener listener(final TestPlugin plugin, final boolean ignoreCancelled, final java.util.function.Consumer<Event> handler) {
+        return new RegisteredListener(new Listener() {}, (listener, event) -> handler.accept(event), EventPriority.NORMAL, plugin, ignoreCancelled);
+    }
+
+    private static final class TestCancellableEvent extends Event implements Cancellable {
+        private static final HandlerList HANDLER_LIST = new HandlerList();
+        private boolean cancelled;
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        @Override
+        public void setCancelled(final boolean cancel) {
+            this.cancelled = cancel;
+        }
+
+        @Override
+        public HandlerList getHandlers() {
+            return HANDLER_LIST;
+        }
+
+        public static HandlerList getHandlerList() {
+            return HANDLER_LIST;
+        }
+    }
+}
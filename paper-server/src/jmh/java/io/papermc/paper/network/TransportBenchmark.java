@@ -0,0 +1,252 @@
+package io.papermc.paper.network;
+
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.natives.util.Natives;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.configuration.GlobalConfigTestingBase;
+import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.network.CompressionDecoder;
+import net.minecraft.network.CompressionEncoder;
+import net.minecraft.network.PacketDecoder;
+import net.minecraft.network.PacketEncoder;
+import net.minecraft.network.PacketListener;
+import net.minecraft.network.Varint21FrameDecoder;
+import net.minecraft.network.Varint21LengthFieldPrepender;
+import net.minecraft.network.protocol.ProtocolInfo;
+import net.minecraft.network.protocol.ping.ClientboundPongResponsePacket;
+import net.minecraft.network.protocol.ping.ServerboundPingRequestPacket;
+import net.minecraft.network.protocol.status.StatusProtocols;
+import net.minecraft.world.flag.FeatureFlags;
+import org.bukkit.support.RegistryHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the round trip time and throughput of the network transports on this system.
+ * <p>
+ * The server channel is set up with the stages a player connection has once compression is enabled: the flush
+ * consolidation handler, the frame splitter and prepender, the native compression stages and the packet codec.
+ * It answers every ping request with a pong. Every benchmark thread is a client on the same transport with the same
+ * stages, sending a ping and waiting for its pong. The compression threshold is zero, so that every packet passes
+ * through the compressor.
+ * </p>
+ * <p>
+ * A transport that is unavailable on this system fails its trial, exclude it with {@code -p transport=...}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class TransportBenchmark {
+
+    private static final int SERVER_THREADS = 2;
+    private static final int CLIENT_THREADS = 4;
+    private static final int COMPRESSION_THRESHOLD = 0;
+
+    @Param({"nio", "epoll", "io_uring"})
+    public String transport;
+
+    private Class<? extends SocketChannel> clientChannel;
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private Channel server;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RegistryHelper.setup(FeatureFlags.VANILLA_SET);
+        GlobalConfigTestingBase.setupGlobalConfigForTest(RegistryHelper.getRegistry());
+
+        final Class<? extends ServerChannel> serverChannel;
+        switch (this.transport) {
+            case "nio" -> {
+                serverChannel = NioServerSocketChannel.class;
+                this.clientChannel = NioSocketChannel.class;
+                this.serverGroup = new NioEventLoopGroup(SERVER_THREADS, daemonThreads("server"));
+                this.clientGroup = new NioEventLoopGroup(CLIENT_THREADS, daemonThreads("client"));
+            }
+            case "epoll" -> {
+                if (!Epoll.isAvailable()) {
+                    throw new IllegalStateException("The epoll transport is unavailable on this system", Epoll.unavailabilityCause());
+                }
+                serverChannel = EpollServerSocketChannel.class;
+                this.clientChannel = EpollSocketChannel.class;
+                this.serverGroup = new EpollEventLoopGroup(SERVER_THREADS, daemonThreads("server"));
+                this.clientGroup = new EpollEventLoopGroup(CLIENT_THREADS, daemonThreads("client"));
+            }
+            case "io_uring" -> {
+                if (!IoUringTransport.isAvailable()) {
+                    throw new IllegalStateException("The io_uring transport is unavailable on this system");
+                }
+                serverChannel = IoUringTransport.serverChannel();
+                this.clientChannel = IoUringTransport.clientChannel();
+                this.serverGroup = IoUringTransport.newEventLoopGroup(SERVER_THREADS, daemonThreads("server"));
+                this.clientGroup = IoUringTransport.newEventLoopGroup(CLIENT_THREADS, daemonThreads("client"));
+            }
+            default -> throw new IllegalArgumentException("Unknown transport " + this.transport);
+        }
+
+        this.server = new ServerBootstrap()
+            .channel(serverChannel)
+            .group(this.serverGroup)
+            .childHandler(new ChannelInitializer<>() {
+                @Override
+                protected void initChannel(final Channel channel) {
+                    channel.pipeline().addFirst(ConsolidatingFlushHandler.NAME, new ConsolidatingFlushHandler(GlobalConfiguration.get().misc.explicitFlushAfterFlushes));
+                    addCodec(channel.pipeline(), StatusProtocols.SERVERBOUND, StatusProtocols.CLIENTBOUND);
+                    channel.pipeline().addLast("handler", new PongHandler());
+                }
+            })
+            .bind(InetAddress.getLoopbackAddress(), 0)
+            .syncUninterruptibly()
+            .channel();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.server.close().syncUninterruptibly();
+        this.clientGroup.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+        this.serverGroup.shutdownGracefully(0L, 1L, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    public long ping(final Client client) {
+        return client.ping();
+    }
+
+    private static <I extends PacketListener, O extends PacketListener> void addCodec(final ChannelPipeline pipeline, final ProtocolInfo<I> inbound, final ProtocolInfo<O> outbound) {
+        // same stages and order as Connection#configureSerialization and Connection#setupCompression
+        final VelocityCompressor compressor = Natives.compress.get().create(GlobalConfiguration.get().misc.compressionLevel.or(-1));
+        pipeline
+            .addLast("splitter", new Varint21FrameDecoder(null))
+            .addLast("decompress", new CompressionDecoder(compressor, COMPRESSION_THRESHOLD, false))
+            .addLast("decoder", new PacketDecoder<>(inbound))
+            .addLast("prepender", new Varint21LengthFieldPrepender())
+            .addLast("compress", new CompressionEncoder(compressor, COMPRESSION_THRESHOLD))
+            .addLast("encoder", new PacketEncoder<>(outbound));
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return runnable -> {
+            final Thread thread = new Thread(runnable, "Transport benchmark " + name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class PongHandler extends SimpleChannelInboundHandler<ServerboundPingRequestPacket> {
+
+        @Override
+        protected void channelRead0(final ChannelHandlerContext ctx, final ServerboundPingRequestPacket packet) {
+            ctx.write(new ClientboundPongResponsePacket(packet.getTime()));
+        }
+
+        @Override
+        public void channelReadComplete(final ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private Channel channel;
+        private volatile CompletableFuture<ClientboundPongResponsePacket> pong;
+
+        @Setup(Level.Trial)
+        public void connect(final TransportBenchmark benchmark) {
+            final ChannelFuture connect = new Bootstrap()
+                .channel(benchmark.clientChannel)
+                .group(benchmark.clientGroup)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(final Channel channel) {
+                        addCodec(channel.pipeline(), StatusProtocols.CLIENTBOUND, StatusProtocols.SERVERBOUND);
+                        channel.pipeline().addLast("handler", new PongReceiver(Client.this));
+                    }
+                })
+                .connect(benchmark.server.localAddress())
+                .syncUninterruptibly();
+            this.channel = connect.channel();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            this.channel.close().syncUninterruptibly();
+        }
+
+        long ping() {
+            final CompletableFuture<ClientboundPongResponsePacket> pong = new CompletableFuture<>();
+            this.pong = pong;
+            this.channel.writeAndFlush(new ServerboundPingRequestPacket(System.nanoTime()));
+            return pong.join().time();
+        }
+    }
+
+    private static final class PongReceiver extends SimpleChannelInboundHandler<ClientboundPongResponsePacket> {
+
+        private final Client client;
+
+        private PongReceiver(final Client client) {
+            this.client = client;
+        }
+
+        @Override
+        protected void channelRead0(final ChannelHandlerContext ctx, final ClientboundPongResponsePacket packet) {
+            this.client.pong.complete(packet);
+        }
+
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx) {
+            final CompletableFuture<ClientboundPongResponsePacket> pong = this.client.pong;
+            if (pong != null) {
+                pong.completeExceptionally(new IllegalStateException("Connection closed"));
+            }
+        }
+
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+            ctx.close();
+            final CompletableFuture<ClientboundPongResponsePacket> pong = this.client.pong;
+            if (pong != null) {
+                pong.completeExceptionally(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the pending tasks of the scheduler kept in a {@link CraftTaskWheel} with the {@link PriorityQueue} the
+ * scheduler used before, for a server with many repeating tasks of mostly short periods.
+ * <p>
+ * Every invocation is one tick of the scheduler: the tasks due on the tick are taken out and scheduled again for
+ * their next run, as the scheduler does with repeating tasks.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CraftTaskWheelBenchmark {
+
+    @Param({"1000", "20000", "100000"})
+    public int tasks;
+
+    private long[] periods;
+    private CraftTaskWheel wheel;
+    private PriorityQueue<CraftTask> queue;
+    private long tick;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        final SplittableRandom random = new SplittableRandom(0L);
+        this.periods = new long[this.tasks];
+        this.wheel = new CraftTaskWheel();
+        this.queue = new PriorityQueue<>(CraftTaskWheel.ORDER);
+        this.tick = 0L;
+        for (int i = 0; i < this.tasks; ++i) {
+            // mostly timers of up to a few seconds, with some running every minute or so
+            this.periods[i] = random.nextInt(10) == 0 ? 1_000L + random.nextInt(500) : 1L + random.nextInt(100);
+            final long nextRun = random.nextInt((int)this.periods[i]);
+            // each structure links its own tasks, tasks of no plugin are counted like those of any other
+            this.wheel.add(this.task(i, nextRun));
+            this.queue.add(this.task(i, nextRun));
+        }
+    }
+
+    private CraftTask task(final int index, final long nextRun) {
+        final CraftTask task = new CraftTask(null, (Runnable) () -> {}, index + 1, this.periods[index]);
+        task.setNextRun(nextRun);
+        return task;
+    }
+
+    @Benchmark
+    public int wheel() {
+        final long tick = this.tick++;
+        final CraftTaskWheel wheel = this.wheel;
+        int ran = 0;
+        while (wheel.isReady(tick)) {
+            final CraftTask task = wheel.poll();
+            task.setNextRun(tick + this.periods[task.getTaskId() - 1]);
+            wheel.add(task);
+            ++ran;
+        }
+        return ran;
+    }
+
+    @Benchmark
+    public int priorityQueue() {
+        final long tick = this.tick++;
+        final PriorityQueue<CraftTask> queue = this.queue;
+        int ran = 0;
+        while (!queue.isEmpty() && queue.peek().getNextRun() <= tick) {
+            final CraftTask task = queue.remove();
+            task.setNextRun(tick + this.periods[task.getTaskId() - 1]);
+            queue.add(task);
+            ++ran;
+        }
+        return ran;
+    }
+}
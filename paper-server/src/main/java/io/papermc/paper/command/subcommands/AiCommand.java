@@ -0,0 +1,66 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.entity.ai.AiTickBudget;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GRAY;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class AiCommand implements PaperSubcommand {
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        final boolean reset = args.length > 0 && args[0].toLowerCase(Locale.ROOT).equals("reset");
+        for (final ServerLevel level : MinecraftServer.getServer().getAllLevels()) {
+            if (reset) {
+                level.aiTickBudget.resetStats();
+                continue;
+            }
+            this.printStats(sender, level);
+        }
+        if (reset) {
+            sender.sendMessage(text("Cleared the AI tick budget stats", GREEN));
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, "reset");
+        }
+        return Collections.emptyList();
+    }
+
+    private void printStats(final CommandSender sender, final ServerLevel level) {
+        final AiTickBudget.Stats stats = level.aiTickBudget.getStats();
+        final String name = level.getWorld().getName();
+        if (stats.budget() < 0.0) {
+            sender.sendMessage(text(name + ": AI tick budget disabled", YELLOW));
+            return;
+        }
+        sender.sendMessage(text(String.format(Locale.ROOT, "%s: %.2f ms of %.2f ms budget, distant mobs every %d ticks",
+            name, stats.lastTickTime(), stats.budget(), stats.interval()), YELLOW));
+        sender.sendMessage(text(String.format(Locale.ROOT, "  %d mobs near players, %d far from players",
+            stats.priorityEntities(), stats.distantEntities()), GRAY));
+        for (final AiTickBudget.Work work : AiTickBudget.Work.values()) {
+            final long ran = stats.ran()[work.ordinal()];
+            final long deferred = stats.deferred()[work.ordinal()];
+            final long total = ran + deferred;
+            sender.sendMessage(text(String.format(Locale.ROOT, "  %s: %d ran, %d deferred (%.1f%%)",
+                work.name().toLowerCase(Locale.ROOT), ran, deferred, total == 0L ? 0.0 : 100.0 * deferred / total), GRAY));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package io.papermc.paper.command.subcommands;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.channel.Channel;
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.network.ConsolidatingFlushHandler;
+import io.papermc.paper.network.PacketSizeStats;
+import io.papermc.paper.network.PaperNetworkStatistics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import net.minecraft.network.Connection;
+import net.minecraft.server.MinecraftServer;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GRAY;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class NetworkCommand implements PaperSubcommand {
+
+    private static final int DEFAULT_PACKET_TYPES = 10;
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length > 0 && args[0].toLowerCase(Locale.ROOT).equals("reset")) {
+            PacketSizeStats.reset();
+            sender.sendMessage(text("Cleared the packet size histograms", GREEN));
+            return true;
+        }
+
+        int packetTypes = DEFAULT_PACKET_TYPES;
+        if (args.length > 0) {
+            try {
+                packetTypes = Integer.parseInt(args[0]);
+            } catch (final NumberFormatException ex) {
+                sender.sendMessage(text("Use /paper network [packet types to list | reset]", RED));
+                return true;
+            }
+        }
+
+        this.printPlayers(sender);
+        this.printAllocator(sender);
+        this.printFlushes(sender);
+        this.printPacketSizes(sender, packetTypes);
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, "reset");
+        }
+        return Collections.emptyList();
+    }
+
+    private void printPlayers(final CommandSender sender) {
+        final PaperNetworkStatistics stats = PaperNetworkStatistics.aggregate(new ArrayList<>(MinecraftServer.getServer().getPlayerList().getPlayers()));
+        sender.sendMessage(text(String.format(Locale.ROOT, "Players: RTT p50 %.1f ms, p95 %.1f ms, p99 %.1f ms over %d samples",
+            stats.roundTripTimeMedian(), stats.roundTripTime95thPercentile(), stats.roundTripTime99thPercentile(), stats.roundTripTimeSamples()), YELLOW));
+        sender.sendMessage(text(String.format(Locale.ROOT, "  %.1f KiB/s in, %.1f KiB/s out, %d packets (%s) queued, flush latency %.2f ms",
+            stats.bytesReceivedPerSecond() / 1024.0, stats.bytesSentPerSecond() / 1024.0, stats.queuedPackets(), mebibytes(stats.queuedBytes()), stats.flushLatency()), GRAY));
+    }
+
+    private void printAllocator(final CommandSender sender) {
+        final ByteBufAllocator allocator = PacketSizeStats.currentAllocator();
+        final String name = GlobalConfiguration.get().misc.serverBufferAllocator ? "server" : "default";
+        if (!(allocator instanceof ByteBufAllocatorMetricProvider provider)) {
+            sender.sendMessage(text("Buffer allocator (" + name + "): no metrics available", YELLOW));
+            return;
+        }
+
+        final ByteBufAllocatorMetric metric = provider.metric();
+        sender.sendMessage(text("Buffer allocator (" + name + "): " + mebibytes(metric.usedDirectMemory()) + " direct, " + mebibytes(metric.usedHeapMemory()) + " heap", YELLOW));
+        if (metric instanceof PooledByteBufAllocatorMetric pooled) {
+            sender.sendMessage(text("  " + pooled.numDirectArenas() + " direct arenas, " + pooled.numHeapArenas() + " heap arenas, "
+                + pooled.numThreadLocalCaches() + " thread caches, " + mebibytes(pooled.chunkSize()) + " chunks", GRAY));
+        }
+    }
+
+    private void printFlushes(final CommandSender sender) {
+        long writes = 0L;
+        long flushRequests = 0L;
+        long flushes = 0L;
+        int connections = 0;
+        for (final Connection connection : new ArrayList<>(MinecraftServer.getServer().getConnection().getConnections())) {
+            final Channel channel = connection.channel;
+            final ConsolidatingFlushHandler handler = channel == null ? null : ConsolidatingFlushHandler.get(channel);
+            if (handler == null) {
+                continue;
+            }
+            writes += handler.getWrites();
+            flushRequests += handler.getFlushRequests();
+            flushes += handler.getFlushes();
+            ++connections;
+        }
+
+        if (connections == 0) {
+            sender.sendMessage(text("Flushes: no connections with flush consolidation", YELLOW));
+            return;
+        }
+        sender.sendMessage(text("Flushes over " + connections + " connections: " + writes + " writes, " + flushRequests + " requested, " + flushes + " to the socket"
+            + (flushes == 0L ? "" : String.format(Locale.ROOT, " (%.1f writes per flush)", (double)writes / (double)flushes)), YELLOW));
+    }
+
+    private void printPacketSizes(final CommandSender sender, final int packetTypes) {
+        if (!GlobalConfiguration.get().misc.presizePacketBuffers) {
+            sender.sendMessage(text("Packet sizes are only recorded with presize-packet-buffers enabled", YELLOW));
+            return;
+        }
+
+        final List<PacketSizeStats.Snapshot> snapshots = PacketSizeStats.snapshot();
+        sender.sendMessage(text("Packet sizes by total bytes, " + Math.min(packetTypes, snapshots.size()) + " of " + snapshots.size() + " types:", YELLOW));
+        for (int i = 0, len = Math.min(packetTypes, snapshots.size()); i < len; ++i) {
+            final PacketSizeStats.Snapshot snapshot = snapshots.get(i);
+            sender.sendMessage(text("  " + snapshot.type() + ": " + snapshot.count() + " packets, " + mebibytes(snapshot.totalBytes())
+                + ", p50 <= " + snapshot.median() + " B, p90 <= " + snapshot.percentile90() + " B, max " + snapshot.max() + " B, initial buffer " + snapshot.initialSize() + " B", GRAY));
+        }
+    }
+
+    private static String mebibytes(final long bytes) {
+        return String.format(Locale.ROOT, "%.2f MiB", (double)bytes / (1024.0 * 1024.0));
+    }
+}
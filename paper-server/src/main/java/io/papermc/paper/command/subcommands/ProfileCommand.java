@@ -0,0 +1,155 @@
+package io.papermc.paper.command.subcommands;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.Strictness;
+import com.google.gson.internal.Streams;
+import com.google.gson.stream.JsonWriter;
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.plugin.profiler.PluginProfiler;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.minecraft.server.MinecraftServer;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GRAY;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.WHITE;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class ProfileCommand implements PaperSubcommand {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH.mm.ss");
+    private static final int SHOWN_PLUGINS = 5;
+    private static final int SHOWN_SOURCES = 10;
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (!PluginProfiler.isEnabled()) {
+            sender.sendMessage(text("The plugin profiler is disabled, enable misc.plugin-profiler in the global config to use it", RED));
+            return true;
+        }
+        final String action = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "";
+        switch (action) {
+            case "reset" -> {
+                PluginProfiler.reset();
+                sender.sendMessage(text("Cleared the plugin profiler", GREEN));
+            }
+            case "export" -> this.export(sender);
+            default -> this.printProfile(sender);
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, "reset", "export");
+        }
+        return Collections.emptyList();
+    }
+
+    private void printProfile(final CommandSender sender) {
+        final PluginProfiler.Snapshot snapshot = PluginProfiler.snapshot();
+        if (snapshot.ticks() == 0) {
+            sender.sendMessage(text("Nothing has been profiled yet", YELLOW));
+            return;
+        }
+        sender.sendMessage(text(String.format(Locale.ROOT, "Plugin time over the last %d ticks:", snapshot.ticks()), YELLOW));
+        final List<Map.Entry<String, Long>> plugins = new ArrayList<>(pluginTotals(snapshot).entrySet());
+        plugins.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (final Map.Entry<String, Long> plugin : plugins.subList(0, Math.min(SHOWN_PLUGINS, plugins.size()))) {
+            sender.sendMessage(text(String.format(Locale.ROOT, "  %s: %.3f ms/tick", plugin.getKey(), msPerTick(plugin.getValue(), snapshot.ticks())), GRAY));
+        }
+        sender.sendMessage(text("Most expensive listeners and tasks:", YELLOW));
+        for (final PluginProfiler.Sample sample : snapshot.samples().subList(0, Math.min(SHOWN_SOURCES, snapshot.samples().size()))) {
+            sender.sendMessage(text(String.format(Locale.ROOT, "  %s %s %s: %.3f ms/tick, %.1f calls/tick",
+                sample.plugin(), sample.kind().name().toLowerCase(Locale.ROOT), sample.name(),
+                msPerTick(sample.nanos(), snapshot.ticks()), (double)sample.calls() / snapshot.ticks()), GRAY));
+        }
+    }
+
+    private void export(final CommandSender sender) {
+        final PluginProfiler.Snapshot snapshot = PluginProfiler.snapshot();
+        final Path parent = Path.of("debug");
+        final Path path = parent.resolve("plugin-profile-" + FORMATTER.format(LocalDateTime.now()) + ".json");
+        try {
+            Files.createDirectories(parent);
+
+            final StringWriter stringWriter = new StringWriter();
+            final JsonWriter jsonWriter = new JsonWriter(stringWriter);
+            jsonWriter.setIndent(" ");
+            jsonWriter.setStrictness(Strictness.STRICT);
+            Streams.write(this.writeProfile(snapshot), jsonWriter);
+
+            try (PrintStream out = new PrintStream(Files.newOutputStream(path), false, StandardCharsets.UTF_8)) {
+                out.print(stringWriter);
+            }
+            sender.sendMessage(
+                text("Successfully written the plugin profile into", GREEN)
+                    .appendSpace()
+                    .append(
+                        text(path.toString(), WHITE)
+                            .hoverEvent(text("Click to copy the full path of the file", WHITE))
+                            .clickEvent(ClickEvent.copyToClipboard(path.toAbsolutePath().toString()))
+                    )
+            );
+        } catch (Throwable e) {
+            sender.sendMessage(text("Failed to write the plugin profile! See the console for more info.", RED));
+            MinecraftServer.LOGGER.warn("Error occurred while exporting the plugin profile", e);
+        }
+    }
+
+    private JsonObject writeProfile(final PluginProfiler.Snapshot snapshot) {
+        final JsonObject root = new JsonObject();
+        root.addProperty("ticks", snapshot.ticks());
+
+        final JsonObject plugins = new JsonObject();
+        for (final Map.Entry<String, Long> plugin : pluginTotals(snapshot).entrySet()) {
+            plugins.addProperty(plugin.getKey(), plugin.getValue());
+        }
+        root.add("plugin-nanos", plugins);
+
+        final JsonArray sources = new JsonArray();
+        for (final PluginProfiler.Sample sample : snapshot.samples()) {
+            final JsonObject source = new JsonObject();
+            source.addProperty("plugin", sample.plugin());
+            source.addProperty("kind", sample.kind().name().toLowerCase(Locale.ROOT));
+            source.addProperty("name", sample.name());
+            source.addProperty("nanos", sample.nanos());
+            source.addProperty("calls", sample.calls());
+            sources.add(source);
+        }
+        root.add("sources", sources);
+        return root;
+    }
+
+    private static Map<String, Long> pluginTotals(final PluginProfiler.Snapshot snapshot) {
+        final Map<String, Long> totals = new LinkedHashMap<>();
+        for (final PluginProfiler.Sample sample : snapshot.samples()) {
+            totals.merge(sample.plugin(), sample.nanos(), Long::sum);
+        }
+        return totals;
+    }
+
+    private static double msPerTick(final long nanos, final int ticks) {
+        return (double)nanos / 1.0E6 / ticks;
+    }
+}
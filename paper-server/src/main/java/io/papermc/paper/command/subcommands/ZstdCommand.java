@@ -0,0 +1,210 @@
+package io.papermc.paper.command.subcommands;
+
+import io.papermc.paper.command.CommandUtil;
+import io.papermc.paper.command.PaperSubcommand;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import io.papermc.paper.util.MCUtil;
+import io.papermc.paper.world.storage.ZstdRegionCompression;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import net.kyori.adventure.text.Component;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.storage.RegionFileStorage;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.craftbukkit.CraftWorld;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.framework.qual.DefaultQualifier;
+
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.GREEN;
+import static net.kyori.adventure.text.format.NamedTextColor.RED;
+import static net.kyori.adventure.text.format.NamedTextColor.YELLOW;
+
+@DefaultQualifier(NonNull.class)
+public final class ZstdCommand implements PaperSubcommand {
+
+    private static final int DEFAULT_SAMPLES = 2000;
+
+    private volatile boolean training;
+
+    @Override
+    public boolean execute(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length < 2 || !args[0].toLowerCase(Locale.ROOT).equals("train")) {
+            sender.sendMessage(text("Use /paper zstd train <world> [samples] to train a compression dictionary from a world's existing chunks", RED));
+            return true;
+        }
+
+        final World world = Bukkit.getWorld(args[1]);
+        if (world == null) {
+            sender.sendMessage(text("Unknown world '" + args[1] + "'", RED));
+            return true;
+        }
+
+        int samples = DEFAULT_SAMPLES;
+        if (args.length > 2) {
+            try {
+                samples = Integer.parseInt(args[2]);
+            } catch (final NumberFormatException ex) {
+                sender.sendMessage(text("Invalid sample count '" + args[2] + "'", RED));
+                return true;
+            }
+            if (samples <= 0) {
+                sender.sendMessage(text("Sample count must be positive", RED));
+                return true;
+            }
+        }
+
+        if (this.training) {
+            sender.sendMessage(text("A dictionary is already being trained", RED));
+            return true;
+        }
+        this.training = true;
+
+        final ServerLevel level = ((CraftWorld)world).getHandle();
+        final int maxSamples = samples;
+        sender.sendMessage(text("Sampling up to " + maxSamples + " chunks from " + world.getName() + "...", YELLOW));
+        MCUtil.scheduleAsyncTask(() -> {
+            try {
+                train(sender, level, maxSamples);
+            } finally {
+                this.training = false;
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public List<String> tabComplete(final CommandSender sender, final String subCommand, final String[] args) {
+        if (args.length == 1) {
+            return CommandUtil.getListMatchingLast(sender, args, "train");
+        } else if (args.length == 2) {
+            return CommandUtil.getListMatchingLast(sender, args, Bukkit.getWorlds().stream().map(World::getName).toList());
+        }
+        return Collections.emptyList();
+    }
+
+    private static void train(final CommandSender sender, final ServerLevel level, final int maxSamples) {
+        final Path regionFolder = level.levelStorageAccess.getDimensionPath(level.dimension()).resolve("region");
+        final List<byte[]> samples;
+        try {
+            samples = sample(level, regionFolder, maxSamples);
+        } catch (final Throwable thr) {
+            MinecraftServer.LOGGER.error("Failed to sample chunk data of {}", level.getWorld().getName(), thr);
+            reply(sender, text("Failed to sample chunk data, see the console for more info", RED));
+            return;
+        }
+
+        if (samples.isEmpty()) {
+            reply(sender, text("World " + level.getWorld().getName() + " has no saved chunks to train from", RED));
+            return;
+        }
+
+        try {
+            final byte[] dictionary = ZstdRegionCompression.trainDictionary(samples.iterator());
+            if (dictionary == null) {
+                reply(sender, text("Failed to train a dictionary from the sampled chunks", RED));
+                return;
+            }
+            final long id = ZstdRegionCompression.installDictionary(regionFolder, dictionary);
+            reply(sender, text("Trained dictionary " + Long.toUnsignedString(id) + " (" + dictionary.length + " bytes) from " + samples.size() + " chunks of " + level.getWorld().getName(), GREEN));
+            if (GlobalConfiguration.get().unsupportedSettings.compressionFormat != GlobalConfiguration.UnsupportedSettings.CompressionFormat.ZSTD) {
+                reply(sender, text("The dictionary will only be used once the region compression format is set to ZSTD", YELLOW));
+            }
+        } catch (final Throwable thr) {
+            MinecraftServer.LOGGER.error("Failed to train zstd dictionary for {}", level.getWorld().getName(), thr);
+            reply(sender, text("Failed to train dictionary, see the console for more info", RED));
+        }
+    }
+
+    private static List<byte[]> sample(final ServerLevel level, final Path regionFolder, final int maxSamples) throws IOException {
+        final List<Path> regionFiles;
+        if (!Files.isDirectory(regionFolder)) {
+            return Collections.emptyList();
+        }
+        try (final Stream<Path> files = Files.list(regionFolder)) {
+            regionFiles = new ArrayList<>(files.filter(file -> RegionFileStorage.getRegionFileCoordinates(file) != null).toList());
+        }
+        // spread the samples over the whole world rather than the first few regions
+        Collections.shuffle(regionFiles);
+
+        final int perRegion = Math.max(1, (maxSamples + regionFiles.size() - 1) / Math.max(1, regionFiles.size()));
+        final List<RegionSampler> samplers = new ArrayList<>(regionFiles.size());
+        for (final Path regionFile : regionFiles) {
+            samplers.add(new RegionSampler(RegionFileStorage.getRegionFileCoordinates(regionFile)));
+        }
+
+        final List<byte[]> ret = new ArrayList<>();
+        long totalBytes = 0L;
+        // read the missing samples of every region at once, until the regions are sampled or out of chunks
+        while (!samplers.isEmpty()) {
+            final List<RegionSampler> readers = new ArrayList<>();
+            final List<CompletableFuture<Optional<CompoundTag>>> reads = new ArrayList<>();
+            for (final Iterator<RegionSampler> iterator = samplers.iterator(); iterator.hasNext(); ) {
+                final RegionSampler sampler = iterator.next();
+                if (sampler.sampled >= perRegion || sampler.next >= 32 * 32) {
+                    iterator.remove();
+                    continue;
+                }
+                for (int i = sampler.sampled; i < perRegion && sampler.next < 32 * 32; ++i) {
+                    final int index = sampler.next++;
+                    final ChunkPos pos = new ChunkPos(sampler.lowerLeft.x + (index & 31), sampler.lowerLeft.z + (index >>> 5));
+                    readers.add(sampler);
+                    reads.add(level.getChunkSource().chunkMap.read(pos));
+                }
+            }
+
+            for (int i = 0; i < reads.size(); ++i) {
+                final Optional<CompoundTag> data = reads.get(i).join();
+                if (data.isEmpty()) {
+                    continue;
+                }
+                ++readers.get(i).sampled;
+
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (final DataOutputStream out = new DataOutputStream(bytes)) {
+                    NbtIo.write(data.get(), out);
+                }
+                ret.add(bytes.toByteArray());
+
+                totalBytes += bytes.size();
+                if (ret.size() >= maxSamples || totalBytes >= ZstdRegionCompression.MAX_SAMPLE_BYTES) {
+                    return ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static final class RegionSampler {
+
+        private final ChunkPos lowerLeft;
+        // the index of the next chunk of the region to read
+        private int next;
+        private int sampled;
+
+        private RegionSampler(final ChunkPos lowerLeft) {
+            this.lowerLeft = lowerLeft;
+        }
+    }
+
+    private static void reply(final CommandSender sender, final Component message) {
+        MCUtil.MAIN_EXECUTOR.execute(() -> sender.sendMessage(message));
+    }
+}
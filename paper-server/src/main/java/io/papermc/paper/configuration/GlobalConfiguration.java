@@ -73,6 +73,22 @@ public class GlobalConfiguration extends ConfigurationPart {
             "Set to 0 to let the server configure it automatically per player, or set it to -1 to disable the limit."
         )
         public int playerMaxConcurrentChunkGenerates = 0;
+
+        @Comment(
+            "Set to true to adjust the chunk send rate and concurrent chunk load limit of each player to their connection, " +
+            "based on the backlog and flush latency of the connection and its keepalive round trip time. " +
+            "The player-max-chunk-send-rate is used as the starting rate."
+        )
+        public boolean adaptiveChunkSendRate = false;
+
+        @Comment("The maximum rate in chunks per second that the adaptive chunk send rate can reach. Set to -1 to disable this limit.")
+        public double adaptiveChunkSendRateLimit = 500.0;
+
+        @Comment(
+            "Set to true to share chunk packets between players that are sent the same chunk within a few seconds of one another. " +
+            "Plugins that modify chunk packets per player will see the same packet instance for every player."
+        )
+        public boolean shareChunkPackets = false;
     }
     static void set(final GlobalConfiguration instance) {
         GlobalConfiguration.instance = instance;
@@ -182,7 +198,7 @@ public class GlobalConfiguration extends ConfigurationPart {
         public boolean allowHeadlessPistons = false;
         @Comment("This setting controls if the vanilla damage tick should be skipped if damage was blocked via a shield.")
         public boolean skipVanillaDamageTickWhenShieldBlocked = false;
-        @Comment("This setting controls what compression format is used for region files.")
+        @Comment("This setting controls what compression format is used for region files. ZSTD is specific to Paper: region files containing chunks written with it cannot be read by vanilla or other server software, even after switching back to another format, until those chunks are rewritten, for example with --forceUpgrade --recreateRegionFiles.")
         public CompressionFormat compressionFormat = CompressionFormat.ZLIB;
         @Comment("This setting controls if equipment should be updated when handling certain player actions.")
         public boolean updateEquipmentOnPlayerActions = true;
@@ -191,6 +207,7 @@ public class GlobalConfiguration extends ConfigurationPart {
             GZIP,
             ZLIB,
             LZ4,
+            ZSTD,
             NONE
         }
     }
@@ -225,6 +242,14 @@ public class GlobalConfiguration extends ConfigurationPart {
         public int ioThreads = -1;
         public int workerThreads = -1;
         public String genParallelism = "default";
+        @Comment("Whether chunk data should be decompressed directly from a read-only memory mapping of the region file, instead of copying it onto the heap first.")
+        public boolean memoryMappedRegionReads = false;
+        @Comment("The maximum number of consecutive chunk writes to the same region file that are coalesced into one write and one header update, for example 32.")
+        public IntOr.Disabled regionFileWriteBatchSize = IntOr.Disabled.DISABLED;
+        @Comment("Whether the block data of loaded chunks should be stored in native memory instead of on the heap. This keeps the bulk of the chunk data out of the heap, which may reduce garbage collection pauses on servers with many loaded chunks. The memory is taken from large blocks of native memory that are kept for the lifetime of the server, and is reused once the chunk is unloaded.")
+        public boolean offHeapPaletteStorage = false;
+        @Comment("Whether the encoded block states and biomes of chunk sections should be kept after a chunk is saved, so that sections unchanged by the next save are neither copied nor encoded again. This trades memory for less work on the main thread when saving chunks; the encoded data of a section is dropped once the section is modified.")
+        public boolean cacheEncodedSections = false;
 
         @PostProcess
         private void postProcess() {
@@ -343,8 +368,45 @@ public class GlobalConfiguration extends ConfigurationPart {
                 executor.setMaximumPoolSize(_chatExecutorMaxSize);
             }
         }
+
+        @SuppressWarnings("unused") // used in postProcess
+        public AsyncTaskThreads asyncTaskThreads;
+        public class AsyncTaskThreads extends ConfigurationPart {
+            @Comment("Whether asynchronous scheduler tasks, tasks of the async scheduler and the handling of pre-login events run on a virtual thread each, instead of on pools of platform threads.")
+            private boolean virtualThreads = false;
+            @Comment("The maximum number of asynchronous tasks of a single plugin running on virtual threads at once. Further tasks of the plugin wait for one of them to finish.")
+            private IntOr.Disabled maxConcurrentTasksPerPlugin = IntOr.Disabled.DISABLED;
+            @Comment("Virtual threads pinned to their carrier thread for at least this many milliseconds are logged, with the stack trace they were pinned at.")
+            private IntOr.Disabled pinnedThreadLogThreshold = new IntOr.Disabled(OptionalInt.of(20));
+
+            @PostProcess
+            private void postProcess() {
+                io.papermc.paper.util.concurrent.AsyncTaskExecutor.configure(this.virtualThreads, this.maxConcurrentTasksPerPlugin.or(-1), this.pinnedThreadLogThreshold.or(-1));
+            }
+        }
         public int maxJoinsPerTick = 5;
         public boolean sendFullPosForItemEntities = false;
+        @Comment("Whether the entity updates sent to a player during one entity tracker tick are sent as a single bundle packet, instead of as one packet per update.")
+        public boolean bundleEntityTrackerUpdates = false;
+        @Comment("Whether the flushes of a connection are also consolidated outside of reads, until its network thread has run the tasks already queued on it, so packets written close together reach the socket with a single write.")
+        public boolean consolidateFlushes = false;
+        @Comment("The maximum number of flushes of a connection that are consolidated into one, when consolidate-flushes is enabled.")
+        @Constraints.Min(1)
+        public int explicitFlushAfterFlushes = 256;
+        @Comment("Whether connections use the io_uring transport on Linux, instead of epoll. Falls back to epoll or NIO if io_uring is not available. Requires use-native-transport in server.properties.")
+        public boolean ioUringTransport = false;
+        @Comment("Whether the encoded size of every packet type is recorded, and used to size the buffers packets of that type are encoded into. The recorded sizes are shown by /paper network.")
+        public boolean presizePacketBuffers = false;
+        @Comment("Whether connections allocate their buffers from a pooled allocator of their own, with an arena for every network thread, instead of the shared default allocator.")
+        public boolean serverBufferAllocator = false;
+        @Comment("Packets at least this large, in bytes, are compressed on a pool of worker threads instead of on the connection's network thread. Packets are still sent in the order they were written.")
+        public IntOr.Disabled compressionOffloadThreshold = IntOr.Disabled.DISABLED;
+        @Comment("The number of threads compressing offloaded packets. Values of 0 or below use half of the available processors.")
+        public int compressionOffloadThreads = -1;
+        @Comment("Whether the listeners of every event are compiled into a single chain of calls whenever they change, instead of being called one by one.")
+        public boolean compileEventHandlerChains = false;
+        @Comment("Whether the time plugin listeners, scheduler tasks and entity scheduler tasks take on the server thread is recorded over the last minute. The recorded time is shown by /paper profile.")
+        public boolean pluginProfiler = false;
         public boolean loadPermissionsYmlBeforePlugins = true;
         @Constraints.Min(4)
         public int regionFileCacheSize = 256;
@@ -360,6 +422,14 @@ public class GlobalConfiguration extends ConfigurationPart {
         public IntOr.Default xpOrbGroupsPerArea = IntOr.Default.USE_DEFAULT;
         @Comment("See Fix MC-163962; prevent villager demand from going negative.")
         public boolean preventNegativeVillagerDemand = false;
+
+        @PostProcess
+        private void postProcess() {
+            io.papermc.paper.plugin.profiler.PluginProfiler.setEnabled(this.pluginProfiler);
+            //noinspection ConstantConditions
+            if (net.minecraft.server.MinecraftServer.getServer() == null) return; // In testing env, this will be null here
+            io.papermc.paper.plugin.manager.PaperPluginManagerImpl.getInstance().compileHandlerChains(this.compileEventHandlerChains);
+        }
     }
 
     public BlockUpdates blockUpdates;
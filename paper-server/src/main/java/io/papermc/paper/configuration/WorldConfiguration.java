@@ -4,6 +4,7 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.mojang.logging.LogUtils;
 import io.papermc.paper.FeatureHooks;
+import io.papermc.paper.configuration.constraint.Constraints;
 import io.papermc.paper.configuration.legacy.MaxEntityCollisionsInitializer;
 import io.papermc.paper.configuration.legacy.RequiresSpigotInitialization;
 import io.papermc.paper.configuration.mapping.MergeMap;
@@ -495,6 +496,8 @@ public class WorldConfiguration extends ConfigurationPart {
         @RequiresSpigotInitialization(MaxEntityCollisionsInitializer.class)
         public int maxEntityCollisions = 8;
         public boolean allowPlayerCrammingDamage = false;
+        @Comment("Whether entities look for other entities to push through a grid of the pushable entities in the area, built once per tick, instead of searching the entity sections again for every entity. Speeds up areas crowded with mobs.")
+        public boolean pushBroadphase = false;
     }
 
     public Chunks chunks;
@@ -515,6 +518,14 @@ public class WorldConfiguration extends ConfigurationPart {
             map.put(EntityType.SMALL_FIREBALL, -1);
         });
         public boolean flushRegionsOnSave = false;
+        public WriteAheadLog writeAheadLog;
+
+        public class WriteAheadLog extends ConfigurationPart {
+            @Comment("Whether chunk, entity and poi saves are appended to a write-ahead log that is folded into the region files in the background, instead of being written to the region files directly.")
+            public boolean enabled = false;
+            @Comment("The size, in megabytes, the current log segment may grow to before it is folded into the region files.")
+            public int compactionThreshold = 64;
+        }
 
         @PostProcess
         private void postProcess() {
@@ -539,6 +550,17 @@ public class WorldConfiguration extends ConfigurationPart {
         public int dryFarmland = 1;
         public Table<EntityType<?>, String, Integer> sensor = Util.make(HashBasedTable.create(), table -> table.put(EntityType.VILLAGER, "secondarypoisensor", 40));
         public Table<EntityType<?>, String, Integer> behavior = Util.make(HashBasedTable.create(), table -> table.put(EntityType.VILLAGER, "validatenearbypoi", -1));
+        public AiBudget aiBudget;
+
+        public class AiBudget extends ConfigurationPart {
+            @Comment("The time, in milliseconds, ticking the entities of this world may take per tick before the goal selection, sensors and path recomputation of mobs far from players are spread out over several ticks.")
+            public DoubleOr.Disabled budget = DoubleOr.Disabled.DISABLED;
+            @Comment("The distance, in blocks, to the closest player within which the AI of a mob is never spread out. At most 160.")
+            public int priorityRange = 32;
+            @Comment("The most ticks the AI of mobs far from players is spread out over.")
+            @Constraints.Min(1)
+            public int maxInterval = 20;
+        }
     }
 
     @Setting(FeatureSeedsGeneration.FEATURE_SEEDS_KEY)
@@ -0,0 +1,187 @@
+package io.papermc.paper.entity;
+
+import ca.spottedleaf.moonrise.common.util.CoordinateUtils;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.ChunkSystemLevel;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.entity.ChunkEntitySlices;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.FullChunkStatus;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Answers which pushable entities overlap a bounding box, for entity pushing in crowded areas.
+ * <p>
+ * Looking up the entities to push searches every entity section around the pusher, and testing each entity in
+ * those sections costs quadratically in the number of entities packed into one area, such as in mob farms. Instead,
+ * the pushable entities of a chunk are bucketed once per tick into a grid of small cells, the first time an entity
+ * pushes near the chunk, and every push in the area afterwards only looks at the cells its bounding box covers.
+ * </p>
+ * <p>
+ * The grid is a snapshot, so every entity is bucketed by its bounding box grown by how far it moved in the last
+ * tick, and the candidates of a query are tested against their live bounding boxes. Entities that move too fast
+ * to be bucketed usefully are tested by every query. Entities that are added to, or become pushable in, a chunk
+ * after it has been bucketed are only seen from the next tick on.
+ * </p>
+ * <p>
+ * Only pushing uses the grid. Gathering the entities an entity collides with in
+ * {@link ca.spottedleaf.moonrise.patches.collisions.CollisionUtil#getEntityHardCollisions} already searches separate
+ * per-section lists of the few entities that can be collided with, such as boats and shulkers, so it does not cost
+ * quadratically in crowds. Collisions must also see entities where they are now, which a snapshot taken once per
+ * tick cannot guarantee.
+ * </p>
+ */
+@NullMarked
+public final class EntityPushBroadphase {
+
+    private static final int CELL_SHIFT = 1; // 2 block cells
+    private static final double MARGIN = 0.25;
+    // entities moving further than this per tick would cover too many cells
+    private static final double MAX_BUCKETED_SPEED = 4.0;
+    // how far outside of a chunk the bounding boxes of its entities may reach, as assumed by the entity lookup
+    private static final int CHUNK_REACH = 2;
+
+    private final Level level;
+    private final Long2ObjectOpenHashMap<List<Bucketed>> cells = new Long2ObjectOpenHashMap<>();
+    private final LongOpenHashSet bucketedChunks = new LongOpenHashSet();
+    private final List<Entity> fastEntities = new ArrayList<>();
+    private final List<List<Bucketed>> freeLists = new ArrayList<>();
+    private int tick = Integer.MIN_VALUE;
+
+    private record Bucketed(Entity entity, int minCellX, int minCellY, int minCellZ) {}
+
+    public EntityPushBroadphase(final Level level) {
+        this.level = level;
+    }
+
+    private static long cellKey(final int x, final int y, final int z) {
+        // 26 bits for x and z, 12 bits for y
+        return ((long)x & 0x3FFFFFFL) | (((long)z & 0x3FFFFFFL) << 26) | (((long)y & 0xFFFL) << 52);
+    }
+
+    private static int cell(final double coordinate) {
+        return Mth.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    /**
+     * Returns the entities other than {@code except} whose bounding box intersects the specified box and which
+     * match the predicate. Must be called on the thread ticking the level.
+     */
+    public List<Entity> getEntities(final Entity except, final AABB box, final Predicate<? super Entity> predicate) {
+        final int currentTick = MinecraftServer.currentTick;
+        if (this.tick != currentTick) {
+            this.reset();
+            this.tick = currentTick;
+        }
+
+        final int minChunkX = (Mth.floor(box.minX) - CHUNK_REACH) >> 4;
+        final int minChunkZ = (Mth.floor(box.minZ) - CHUNK_REACH) >> 4;
+        final int maxChunkX = (Mth.floor(box.maxX) + CHUNK_REACH) >> 4;
+        final int maxChunkZ = (Mth.floor(box.maxZ) + CHUNK_REACH) >> 4;
+        for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; ++chunkX) {
+                if (this.bucketedChunks.add(CoordinateUtils.getChunkKey(chunkX, chunkZ))) {
+                    this.bucketChunk(chunkX, chunkZ);
+                }
+            }
+        }
+
+        final List<Entity> ret = new ArrayList<>();
+
+        final int minX = cell(box.minX);
+        final int minY = cell(box.minY);
+        final int minZ = cell(box.minZ);
+        final int maxX = cell(box.maxX);
+        final int maxY = cell(box.maxY);
+        final int maxZ = cell(box.maxZ);
+        for (int x = minX; x <= maxX; ++x) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                for (int y = minY; y <= maxY; ++y) {
+                    final List<Bucketed> cell = this.cells.get(cellKey(x, y, z));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0, len = cell.size(); i < len; ++i) {
+                        final Bucketed bucketed = cell.get(i);
+                        // an entity covering several of the searched cells is only tested in the first of them
+                        if (x != Math.max(minX, bucketed.minCellX) || y != Math.max(minY, bucketed.minCellY) || z != Math.max(minZ, bucketed.minCellZ)) {
+                            continue;
+                        }
+                        final Entity entity = bucketed.entity;
+                        if (entity != except && !entity.isRemoved() && entity.getBoundingBox().intersects(box) && predicate.test(entity)) {
+                            ret.add(entity);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int i = 0, len = this.fastEntities.size(); i < len; ++i) {
+            final Entity entity = this.fastEntities.get(i);
+            if (entity != except && !entity.isRemoved() && entity.getBoundingBox().intersects(box) && predicate.test(entity)) {
+                ret.add(entity);
+            }
+        }
+
+        return ret;
+    }
+
+    private void bucketChunk(final int chunkX, final int chunkZ) {
+        final ChunkEntitySlices slices = ((ChunkSystemLevel)this.level).moonrise$getEntityLookup().getChunk(chunkX, chunkZ);
+        if (slices == null || !slices.status.isOrAfter(FullChunkStatus.FULL)) {
+            return;
+        }
+
+        for (final Entity entity : slices.getAllEntities()) {
+            if (entity.isRemoved() || !entity.isPushable()) {
+                continue;
+            }
+
+            final Vec3 movement = entity.getDeltaMovement();
+            final double speed = Math.max(Math.abs(movement.x), Math.max(Math.abs(movement.y), Math.abs(movement.z)));
+            if (speed > MAX_BUCKETED_SPEED) {
+                this.fastEntities.add(entity);
+                continue;
+            }
+
+            final AABB box = entity.getBoundingBox().inflate(speed + MARGIN);
+            final int minX = cell(box.minX);
+            final int minY = cell(box.minY);
+            final int minZ = cell(box.minZ);
+            final int maxX = cell(box.maxX);
+            final int maxY = cell(box.maxY);
+            final int maxZ = cell(box.maxZ);
+            final Bucketed bucketed = new Bucketed(entity, minX, minY, minZ);
+            for (int x = minX; x <= maxX; ++x) {
+                for (int z = minZ; z <= maxZ; ++z) {
+                    for (int y = minY; y <= maxY; ++y) {
+                        List<Bucketed> cell = this.cells.get(cellKey(x, y, z));
+                        if (cell == null) {
+                            cell = this.freeLists.isEmpty() ? new ArrayList<>() : this.freeLists.removeLast();
+                            this.cells.put(cellKey(x, y, z), cell);
+                        }
+                        cell.add(bucketed);
+                    }
+                }
+            }
+        }
+    }
+
+    private void reset() {
+        for (final List<Bucketed> cell : this.cells.values()) {
+            cell.clear();
+            this.freeLists.add(cell);
+        }
+        this.cells.clear();
+        this.bucketedChunks.clear();
+        this.fastEntities.clear();
+    }
+}
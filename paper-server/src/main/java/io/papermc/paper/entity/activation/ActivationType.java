@@ -10,7 +10,6 @@ import net.minecraft.world.entity.monster.Ghast;
 import net.minecraft.world.entity.monster.Phantom;
 import net.minecraft.world.entity.npc.Villager;
 import net.minecraft.world.entity.raid.Raider;
-import net.minecraft.world.phys.AABB;
 
 public enum ActivationType {
     WATER,
@@ -21,7 +20,7 @@ public enum ActivationType {
     RAIDER,
     MISC;
 
-    AABB boundingBox = new AABB(0, 0, 0, 0, 0, 0);
+    int range; // activation range in blocks of the world being ticked, capped to the simulation distance
 
     /**
      * Returns the activation type for the given entity.
@@ -0,0 +1,269 @@
+package io.papermc.paper.entity.ai;
+
+import ca.spottedleaf.moonrise.common.list.ReferenceList;
+import ca.spottedleaf.moonrise.common.misc.NearbyPlayers;
+import ca.spottedleaf.moonrise.patches.chunk_system.entity.ChunkSystemEntity;
+import ca.spottedleaf.moonrise.patches.chunk_system.level.chunk.ChunkData;
+import io.papermc.paper.configuration.WorldConfiguration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.pathfinder.Path;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Spreads the expensive AI work of mobs far from players over several ticks once ticking the entities of a world
+ * takes longer than its configured budget.
+ * <p>
+ * Goal selection, sensors and path recomputation make up most of the time spent ticking mobs, and do not need to
+ * run every tick for mobs no player is close enough to watch. While the entities of a world take longer to tick
+ * than the budget, the interval that work of distant mobs runs at grows by a tick every tick, up to the configured
+ * maximum; once they are comfortably within the budget again, it shrinks by a tick every tick. Every distant mob
+ * runs its work on the ticks its own tick count offset by its id falls on, so the work is spread evenly over the
+ * interval and no mob is skipped for longer than the interval. Goal selectors only run every other tick of a mob,
+ * so goal selection is spread over that many of those ticks instead. Mobs within the priority range of a player
+ * are never deferred.
+ * </p>
+ * <p>
+ * Deferred sensors run on the next tick the mob may run its work on, deferred goals are not considered for
+ * starting until then, and a mob whose path would be recomputed for a target close to its current one keeps
+ * following its current path.
+ * </p>
+ * <p>
+ * Only the thread ticking the entities of a world may use this class.
+ * </p>
+ */
+@NullMarked
+public final class AiTickBudget {
+
+    private static final int MAX_PRIORITY_RANGE = NearbyPlayers.GENERAL_SMALL_AREA_VIEW_DISTANCE_BLOCKS;
+    // paths to targets within this distance of the current target are only recomputed when there is budget
+    private static final double RECOMPUTE_DISTANCE = 4.0;
+    // below this fraction of the budget, the interval shrinks again
+    private static final double SHRINK_THRESHOLD = 0.75;
+
+    private static @Nullable AiTickBudget current;
+
+    private final Level level;
+    private final long[] ran = new long[Work.VALUES.length];
+    private final long[] deferred = new long[Work.VALUES.length];
+
+    private int interval = 1;
+    private long timeThisTick;
+    private long timeLastTick;
+    private int priorityEntities;
+    private int distantEntities;
+    private int priorityEntitiesLastTick;
+    private int distantEntitiesLastTick;
+
+    private @Nullable Entity entity;
+    private long entityStart;
+    // -1 if not yet known for the current entity
+    private int entityPriority = -1;
+
+    public enum Work {
+        GOAL_SELECTION,
+        SENSOR,
+        PATH_RECOMPUTATION;
+
+        private static final Work[] VALUES = values();
+    }
+
+    /**
+     * A snapshot of the state of a budget.
+     *
+     * @param budget the budget, in ms, or {@code -1} if it is disabled
+     * @param interval the ticks the work of distant mobs is currently spread out over
+     * @param lastTickTime the time ticking entities took during the last tick, in ms
+     * @param priorityEntities the mobs near players that did budgeted work during the last tick
+     * @param distantEntities the mobs far from players that did or deferred budgeted work during the last tick
+     * @param ran the work done since the stats were last reset, indexed by {@link Work#ordinal()}
+     * @param deferred the work deferred since the stats were last reset, indexed by {@link Work#ordinal()}
+     */
+    public record Stats(double budget, int interval, double lastTickTime, int priorityEntities, int distantEntities, long[] ran, long[] deferred) {}
+
+    public AiTickBudget(final Level level) {
+        this.level = level;
+    }
+
+    private WorldConfiguration.TickRates.AiBudget config() {
+        return this.level.paperConfig().tickRates.aiBudget;
+    }
+
+    /**
+     * Updates the interval of distant mobs from the time entities took to tick during the last tick. Called
+     * before the entities of the world are ticked.
+     */
+    public void startTick() {
+        // an entity that failed to tick may have left itself as the current one
+        this.entity = null;
+        current = null;
+
+        this.timeLastTick = this.timeThisTick;
+        this.timeThisTick = 0L;
+        this.priorityEntitiesLastTick = this.priorityEntities;
+        this.distantEntitiesLastTick = this.distantEntities;
+        this.priorityEntities = 0;
+        this.distantEntities = 0;
+
+        final WorldConfiguration.TickRates.AiBudget config = this.config();
+        if (!config.budget.enabled()) {
+            this.interval = 1;
+            return;
+        }
+        this.updateInterval(this.timeLastTick, (long)(config.budget.doubleValue() * 1.0E6), config.maxInterval);
+    }
+
+    void updateInterval(final long tickTime, final long budget, final int maxInterval) {
+        if (tickTime > budget) {
+            this.interval = Math.min(maxInterval, this.interval + 1);
+        } else if (tickTime < (long)(budget * SHRINK_THRESHOLD)) {
+            this.interval = Math.max(1, this.interval - 1);
+        } else {
+            // the maximum may have been lowered by a reload
+            this.interval = Math.min(maxInterval, this.interval);
+        }
+    }
+
+    int getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Starts ticking an entity. Budgeted work done until {@link #endEntity()} is attributed to it.
+     */
+    public void startEntity(final Entity entity) {
+        if (!this.config().budget.enabled()) {
+            return;
+        }
+        current = this;
+        this.entity = entity;
+        this.entityPriority = -1;
+        this.entityStart = System.nanoTime();
+    }
+
+    /**
+     * Finishes ticking the entity passed to {@link #startEntity(Entity)}.
+     */
+    public void endEntity() {
+        if (this.entity == null) {
+            return;
+        }
+        this.timeThisTick += System.nanoTime() - this.entityStart;
+        this.entity = null;
+        current = null;
+    }
+
+    /**
+     * Returns whether the entity currently being ticked may do the specified work this tick. Always returns
+     * {@code true} outside of entity ticking, or if the budget is disabled.
+     */
+    public static boolean tryRun(final Work work) {
+        final AiTickBudget budget = current;
+        return budget == null || budget.admit(work);
+    }
+
+    /**
+     * Returns whether a mob should keep following its current path instead of recomputing it for the specified
+     * targets, because the targets are close to its current target and the mob may not recompute paths this tick.
+     */
+    public static boolean keepCurrentPath(final @Nullable Path path, final @Nullable BlockPos targetPos, final Set<BlockPos> targets) {
+        return current != null && keepCurrentPath(path, targetPos, targets, () -> tryRun(Work.PATH_RECOMPUTATION));
+    }
+
+    static boolean keepCurrentPath(final @Nullable Path path, final @Nullable BlockPos targetPos, final Set<BlockPos> targets, final BooleanSupplier mayRecompute) {
+        if (path == null || path.isDone() || targetPos == null) {
+            return false;
+        }
+        for (final BlockPos target : targets) {
+            if (!target.closerThan(targetPos, RECOMPUTE_DISTANCE)) {
+                return false;
+            }
+        }
+        // only count the recomputation as run or deferred once it could be deferred
+        return !mayRecompute.getAsBoolean();
+    }
+
+    private boolean admit(final Work work) {
+        final Entity entity = this.entity;
+        if (entity == null) {
+            return true;
+        }
+        if (this.entityPriority == -1) {
+            this.entityPriority = this.isNearPlayer(entity) ? 1 : 0;
+            if (this.entityPriority == 1) {
+                ++this.priorityEntities;
+            } else {
+                ++this.distantEntities;
+            }
+        }
+        return this.admit(work, this.entityPriority == 1, entity.getId(), entity.tickCount);
+    }
+
+    boolean admit(final Work work, final boolean nearPlayer, final int id, final int tickCount) {
+        if (nearPlayer || isDue(work, id, tickCount, this.interval)) {
+            ++this.ran[work.ordinal()];
+            return true;
+        }
+        ++this.deferred[work.ordinal()];
+        return false;
+    }
+
+    /**
+     * Returns whether a distant mob may do the specified work on the specified tick of its own.
+     */
+    static boolean isDue(final Work work, final int id, final int tickCount, final int interval) {
+        if (interval <= 1) {
+            return true;
+        }
+        final int phase = tickCount + id;
+        if (work == Work.GOAL_SELECTION) {
+            // Mob#serverAiStep only selects goals on the ticks this phase is even on, so only count those ticks
+            return Math.floorMod(phase >> 1, interval) == 0;
+        }
+        return Math.floorMod(phase, interval) == 0;
+    }
+
+    private boolean isNearPlayer(final Entity entity) {
+        final ChunkData chunkData = ((ChunkSystemEntity)entity).moonrise$getChunkData();
+        final NearbyPlayers.TrackedChunk nearbyPlayers = chunkData == null ? null : chunkData.nearbyPlayers;
+        final ReferenceList<ServerPlayer> players = nearbyPlayers == null ? null : nearbyPlayers.getPlayers(NearbyPlayers.NearbyMapType.GENERAL_SMALL);
+        if (players == null) {
+            return false;
+        }
+
+        final double range = Math.min(MAX_PRIORITY_RANGE, this.config().priorityRange);
+        final double rangeSquared = range * range;
+        final ServerPlayer[] raw = players.getRawDataUnchecked();
+        for (int i = 0, len = players.size(); i < len; ++i) {
+            if (raw[i].distanceToSqr(entity) <= rangeSquared) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Stats getStats() {
+        final WorldConfiguration.TickRates.AiBudget config = this.config();
+        return new Stats(
+            config.budget.or(-1.0),
+            this.interval,
+            (double)this.timeLastTick / (double)TimeUnit.MILLISECONDS.toNanos(1L),
+            this.priorityEntitiesLastTick,
+            this.distantEntitiesLastTick,
+            this.ran.clone(),
+            this.deferred.clone()
+        );
+    }
+
+    public void resetStats() {
+        Arrays.fill(this.ran, 0L);
+        Arrays.fill(this.deferred, 0L);
+    }
+}
@@ -0,0 +1,138 @@
+package io.papermc.paper.network;
+
+import io.netty.channel.Channel;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.network.Connection;
+import net.minecraft.server.level.ServerPlayer;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Adjusts the chunk send rate of a single player to what their connection can take.
+ * <p>
+ * The connection is sampled a few times per second for three signals of congestion: how full the channel's outbound
+ * buffer is compared to its high water mark, the flush latency measured by the {@link ConnectionTelemetry} of the
+ * connection, and the keepalive round trip time. The latencies are compared to the lowest seen for the player. All
+ * of them are read without writing to or flushing the channel, and the outbound buffer only through
+ * {@link Channel#bytesBeforeUnwritable()}, which is safe to call off the event loop. While none of them indicate
+ * congestion and chunks are waiting to be sent, the rate grows by a fraction of itself, so players on fast
+ * connections ramp up quickly. Once any of them does, the rate is cut back multiplicatively, which keeps slow
+ * connections from piling chunk packets up in Netty's buffers.
+ * </p>
+ * <p>
+ * The concurrent chunk load limit of the player follows the send rate, so chunks are not loaded far ahead of what
+ * can be sent.
+ * </p>
+ */
+@NullMarked
+public final class AdaptiveChunkSendRate {
+
+    private static final long SAMPLE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(250L);
+    // the fraction of the channel's write buffer high water mark that may be filled
+    private static final double MAX_OUTBOUND_BACKLOG = 0.5;
+    private static final int RTT_INFLATION_ALLOWANCE = 100; // ms, on top of twice the lowest RTT
+    private static final long FLUSH_LATENCY_INFLATION_ALLOWANCE = TimeUnit.MILLISECONDS.toNanos(50L); // on top of twice the lowest flush latency
+
+    private static final double MIN_SEND_RATE = 5.0;
+    private static final double MIN_RATE_INCREASE = 2.0;
+    private static final double RATE_INCREASE_FACTOR = 0.10;
+    private static final double RATE_DECREASE_FACTOR = 0.75;
+    // how many seconds of chunk sends may be loading at once
+    private static final double LOAD_AHEAD = 1.0;
+    private static final long MIN_CONCURRENT_LOADS = 5L;
+
+    private final ServerPlayer player;
+
+    private double sendRate;
+    private long lastSample;
+    private int minRtt = Integer.MAX_VALUE;
+    private long minFlushLatency = Long.MAX_VALUE;
+
+    public AdaptiveChunkSendRate(final ServerPlayer player, final double initialRate) {
+        this.player = player;
+        this.sendRate = clampRate(initialRate);
+    }
+
+    private static double getMaxRate() {
+        final double limit = GlobalConfiguration.get().chunkLoadingAdvanced.adaptiveChunkSendRateLimit;
+        return limit <= 0.0 ? 10_000.0 : Math.max(MIN_SEND_RATE, limit);
+    }
+
+    private static double clampRate(final double rate) {
+        return Math.max(MIN_SEND_RATE, Math.min(getMaxRate(), rate));
+    }
+
+    /**
+     * Returns the chunk send rate of the player, in chunks per second.
+     */
+    public double getSendRate() {
+        return this.sendRate;
+    }
+
+    /**
+     * Returns the maximum number of chunk loads the player should have in progress at once for the current send rate.
+     */
+    public long getMaxConcurrentLoads() {
+        return Math.max(MIN_CONCURRENT_LOADS, (long)Math.ceil(this.sendRate * LOAD_AHEAD));
+    }
+
+    /**
+     * Samples the connection and adjusts the send rate, if enough time has passed since the last sample.
+     *
+     * @param time current time, in ns
+     * @param pendingSends the number of chunks waiting to be sent to the player
+     */
+    public void update(final long time, final int pendingSends) {
+        if (time - this.lastSample < SAMPLE_INTERVAL) {
+            return;
+        }
+        this.lastSample = time;
+
+        final Connection connection = this.player.connection.connection;
+        final Channel channel = connection.channel;
+        if (channel == null || !channel.isActive()) {
+            return;
+        }
+
+        final ConnectionTelemetry telemetry = ConnectionTelemetry.get(channel);
+        final long flushLatency = telemetry == null ? 0L : telemetry.getFlushLatency(time);
+        this.adjust(isBacklogged(channel), this.player.connection.latency(), flushLatency, pendingSends);
+    }
+
+    /**
+     * Adjusts the send rate to the sampled signals of congestion.
+     *
+     * @param backlogged whether the outbound buffer of the channel is too full
+     * @param rtt the keepalive round trip time, in ms, or {@code 0} if it is not known yet
+     * @param flushLatency the flush latency, in ns, or {@code 0} if it is not known yet
+     * @param pendingSends the number of chunks waiting to be sent to the player
+     */
+    void adjust(final boolean backlogged, final int rtt, final long flushLatency, final int pendingSends) {
+        if (rtt > 0) {
+            this.minRtt = Math.min(this.minRtt, rtt);
+        }
+        if (flushLatency > 0L) {
+            this.minFlushLatency = Math.min(this.minFlushLatency, flushLatency);
+        }
+
+        final boolean congested = backlogged
+            || (rtt > 0 && rtt > 2 * this.minRtt + RTT_INFLATION_ALLOWANCE)
+            || (flushLatency > 0L && flushLatency > 2L * this.minFlushLatency + FLUSH_LATENCY_INFLATION_ALLOWANCE);
+
+        if (congested) {
+            this.sendRate = clampRate(this.sendRate * RATE_DECREASE_FACTOR);
+        } else if (pendingSends > 0) {
+            // only grow while the rate is what holds sends back, otherwise there is nothing to measure the increase against
+            this.sendRate = clampRate(this.sendRate + Math.max(MIN_RATE_INCREASE, this.sendRate * RATE_INCREASE_FACTOR));
+        }
+    }
+
+    private static boolean isBacklogged(final Channel channel) {
+        if (!channel.isWritable()) {
+            return true;
+        }
+        final long highWaterMark = channel.config().getWriteBufferHighWaterMark();
+        final long pending = highWaterMark - channel.bytesBeforeUnwritable();
+        return pending > highWaterMark * MAX_OUTBOUND_BACKLOG;
+    }
+}
@@ -0,0 +1,149 @@
+package io.papermc.paper.network;
+
+import ca.spottedleaf.moonrise.common.util.CoordinateUtils;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.protocol.game.ClientboundLevelChunkWithLightPacket;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Shares chunk packets between players that are sent the same chunk shortly after one another.
+ * <p>
+ * Building a chunk packet serializes every section of the chunk along with its light, and with Anti-Xray enabled
+ * obfuscates the serialized sections too. When many players move into the same area at once, such as around the
+ * spawn or at an event, each of them would otherwise build the same packet again. Packets are immutable once
+ * built, so one instance can be written to any number of connections; packets with and without Anti-Xray
+ * obfuscation are cached separately.
+ * </p>
+ * <p>
+ * A chunk's packets are dropped when a block in or bordering the chunk changes through
+ * {@link net.minecraft.world.level.Level#setBlock(BlockPos, net.minecraft.world.level.block.state.BlockState, int, int)},
+ * when a block or block entity update of the chunk is sent to players, and when light in the chunk changes. Packets
+ * are also only reused while the sum of the modification counts of the chunk's block state and biome containers is
+ * unchanged, which catches block and biome changes written to the sections directly. Changes that bypass all of
+ * these, such as block entity data that is not broadcast, are bounded by the maximum age of an entry. Expired
+ * entries are evicted whenever an entry is added, and a chunk's entry is dropped when the chunk unloads.
+ * </p>
+ */
+@NullMarked
+public final class ChunkPacketCache {
+
+    private static final long MAX_AGE = TimeUnit.SECONDS.toNanos(5L);
+    private static final int MAX_ENTRIES = 1024;
+
+    // ordered by creation time, oldest first
+    private final Long2ObjectLinkedOpenHashMap<Entry> entries = new Long2ObjectLinkedOpenHashMap<>();
+
+    private static final class Entry {
+
+        private final long created;
+        private final long modifications;
+        private @Nullable ClientboundLevelChunkWithLightPacket modified;
+        private @Nullable ClientboundLevelChunkWithLightPacket unmodified;
+
+        private Entry(final long created, final long modifications) {
+            this.created = created;
+            this.modifications = modifications;
+        }
+    }
+
+    /**
+     * Returns a chunk packet for the chunk, reusing a recently built one if the chunk has not changed since.
+     */
+    public ClientboundLevelChunkWithLightPacket get(final LevelChunk chunk, final boolean modifyBlocks) {
+        if (!GlobalConfiguration.get().chunkLoadingAdvanced.shareChunkPackets) {
+            return new ClientboundLevelChunkWithLightPacket(chunk, chunk.getLevel().getLightEngine(), null, null, modifyBlocks);
+        }
+
+        final long time = System.nanoTime();
+        final long key = chunk.coordinateKey;
+        final long modifications = getModifications(chunk);
+        synchronized (this.entries) {
+            Entry entry = this.entries.get(key);
+            if (entry == null || time - entry.created > MAX_AGE || entry.modifications != modifications) {
+                if (entry != null) {
+                    this.entries.remove(key);
+                }
+                this.evictExpired(time);
+                entry = new Entry(time, modifications);
+                this.entries.putAndMoveToLast(key, entry);
+                if (this.entries.size() > MAX_ENTRIES) {
+                    this.entries.removeFirst();
+                }
+            }
+
+            ClientboundLevelChunkWithLightPacket packet = modifyBlocks ? entry.modified : entry.unmodified;
+            if (packet == null) {
+                packet = new ClientboundLevelChunkWithLightPacket(chunk, chunk.getLevel().getLightEngine(), null, null, modifyBlocks);
+                if (modifyBlocks) {
+                    entry.modified = packet;
+                } else {
+                    entry.unmodified = packet;
+                }
+            }
+            return packet;
+        }
+    }
+
+    private void evictExpired(final long time) {
+        while (!this.entries.isEmpty() && time - this.entries.get(this.entries.firstLongKey()).created > MAX_AGE) {
+            this.entries.removeFirst();
+        }
+    }
+
+    private static long getModifications(final LevelChunk chunk) {
+        long ret = 0L;
+        for (final LevelChunkSection section : chunk.getSections()) {
+            ret += section.getStates().modificationCount;
+            if (section.getBiomes() instanceof PalettedContainer<?> biomes) {
+                ret += biomes.modificationCount;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Drops the packets of the chunk containing the block, and of the chunks bordering the block, whose Anti-Xray
+     * obfuscation may depend on it.
+     */
+    public void invalidate(final BlockPos pos) {
+        final int chunkX = pos.getX() >> 4;
+        final int chunkZ = pos.getZ() >> 4;
+        final int localX = pos.getX() & 15;
+        final int localZ = pos.getZ() & 15;
+        synchronized (this.entries) {
+            if (this.entries.isEmpty()) {
+                return;
+            }
+            this.entries.remove(CoordinateUtils.getChunkKey(chunkX, chunkZ));
+            if (localX == 0) {
+                this.entries.remove(CoordinateUtils.getChunkKey(chunkX - 1, chunkZ));
+            } else if (localX == 15) {
+                this.entries.remove(CoordinateUtils.getChunkKey(chunkX + 1, chunkZ));
+            }
+            if (localZ == 0) {
+                this.entries.remove(CoordinateUtils.getChunkKey(chunkX, chunkZ - 1));
+            } else if (localZ == 15) {
+                this.entries.remove(CoordinateUtils.getChunkKey(chunkX, chunkZ + 1));
+            }
+        }
+    }
+
+    /**
+     * Drops the packets of the chunk.
+     */
+    public void invalidate(final int chunkX, final int chunkZ) {
+        synchronized (this.entries) {
+            if (this.entries.isEmpty()) {
+                return;
+            }
+            this.entries.remove(CoordinateUtils.getChunkKey(chunkX, chunkZ));
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package io.papermc.paper.network;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.natives.util.MoreByteBufUtils;
+import com.velocitypowered.natives.util.Natives;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.network.CompressionEncoder;
+import net.minecraft.network.VarInt;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Compresses large outbound packets of a connection on a shared pool of worker threads, instead of on the
+ * connection's event loop.
+ * <p>
+ * Compressing chunk packets dominates the work of an event loop during join storms, and since every connection
+ * is bound to a single event loop, a few busy event loops can stall all of their connections while others are
+ * idle. This handler sits in front of the {@code compress} stage and hands every packet at least as large as the
+ * offload threshold to the pool. The compressed packet is written past the {@code compress} stage, in the same
+ * format it would have produced. Packets written after an offloaded packet are held back until it has been
+ * compressed, as are flushes, so the packets of a connection are always sent in the order they were written.
+ * </p>
+ * <p>
+ * The pool's queue is bounded; once it is full, packets are passed on to the {@code compress} stage as usual, in
+ * order with the packets held back before them.
+ * </p>
+ * <p>
+ * Every worker compresses with its own native compressor, which is closed when the worker exits. Workers are kept
+ * alive until the pool is shut down with the server.
+ * </p>
+ */
+@NullMarked
+public final class CompressionOffloadHandler extends ChannelOutboundHandlerAdapter {
+
+    public static final String NAME = "compress_offload";
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int MAX_PACKET_SIZE = 8388608; // the largest packet the compression encoder accepts
+    private static final int QUEUE_SIZE_PER_THREAD = 256;
+
+    private static @Nullable ThreadPoolExecutor executor;
+    // only set on the workers of the pool, closed when they exit
+    private static final ThreadLocal<VelocityCompressor> COMPRESSOR = new ThreadLocal<>();
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private boolean flushPending;
+    private boolean removed;
+
+    private static final class Pending {
+
+        private final Object msg;
+        private final ChannelPromise promise;
+        private final boolean offloaded;
+        private boolean done;
+        private @Nullable ByteBuf compressed;
+        private @Nullable Throwable failure;
+
+        private Pending(final Object msg, final ChannelPromise promise, final boolean offloaded) {
+            this.msg = msg;
+            this.promise = promise;
+            this.offloaded = offloaded;
+        }
+    }
+
+    /**
+     * Returns whether large packets should be compressed off the event loop.
+     */
+    public static boolean isEnabled() {
+        return GlobalConfiguration.get().misc.compressionOffloadThreshold.enabled();
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            final int configured = GlobalConfiguration.get().misc.compressionOffloadThreads;
+            final int threads = configured > 0 ? configured : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("Paper Compression Worker - %d")
+                    .setDaemon(true)
+                    .setUncaughtExceptionHandler((thread, thr) -> LOGGER.error("Uncaught exception in thread {}", thread.getName(), thr))
+                    .setThreadFactory(task -> new Thread(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            closeCompressor();
+                        }
+                    }))
+                    .build(),
+                new ThreadPoolExecutor.AbortPolicy()
+            );
+        }
+        return executor;
+    }
+
+    /**
+     * Shuts the worker pool down, closing the compressors of its workers once they have finished their work.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private static VelocityCompressor getCompressor() {
+        VelocityCompressor compressor = COMPRESSOR.get();
+        if (compressor == null) {
+            compressor = Natives.compress.get().create(GlobalConfiguration.get().misc.compressionLevel.or(-1));
+            COMPRESSOR.set(compressor);
+        }
+        return compressor;
+    }
+
+    private static void closeCompressor() {
+        final VelocityCompressor compressor = COMPRESSOR.get();
+        if (compressor != null) {
+            COMPRESSOR.remove();
+            compressor.close();
+        }
+    }
+
+    private static boolean shouldOffload(final ChannelHandlerContext ctx, final ByteBuf buf) {
+        if (!(ctx.pipeline().get("compress") instanceof CompressionEncoder encoder)) {
+            return false;
+        }
+        final int size = buf.readableBytes();
+        final int compressionThreshold = encoder.getThreshold();
+        return compressionThreshold >= 0 && size >= compressionThreshold && size <= MAX_PACKET_SIZE
+            && GlobalConfiguration.get().misc.compressionOffloadThreshold.test(threshold -> size >= threshold);
+    }
+
+    private static ByteBuf compress(final ByteBufAllocator alloc, final ByteBuf in) throws Exception {
+        final VelocityCompressor compressor = getCompressor();
+        final int size = in.readableBytes();
+        // see CompressionEncoder#allocateBuffer
+        final ByteBuf out = MoreByteBufUtils.preferredBuffer(alloc, compressor, size + 1);
+        try {
+            VarInt.write(out, size);
+            final ByteBuf compatibleIn = MoreByteBufUtils.ensureCompatible(alloc, compressor, in);
+            try {
+                compressor.deflate(compatibleIn, out);
+            } finally {
+                compatibleIn.release();
+            }
+            return out;
+        } catch (final Throwable thr) {
+            out.release();
+            throw thr;
+        }
+    }
+
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+        if (!(msg instanceof ByteBuf buf) || !shouldOffload(ctx, buf)) {
+            if (this.queue.isEmpty()) {
+                ctx.write(msg, promise);
+            } else {
+                this.queue.add(new Pending(msg, promise, false));
+            }
+            return;
+        }
+
+        final Pending pending = new Pending(msg, promise, true);
+        final ByteBufAllocator alloc = ctx.alloc();
+        try {
+            getExecutor().execute(() -> {
+                try {
+                    pending.compressed = compress(alloc, buf);
+                } catch (final Throwable thr) {
+                    pending.failure = thr;
+                } finally {
+                    // this stage owns the written message, as the compression encoder would
+                    ReferenceCountUtil.release(buf);
+                }
+                try {
+                    ctx.executor().execute(() -> {
+                        pending.done = true;
+                        if (this.removed) {
+                            this.fail(pending, new IllegalStateException("Compression offload handler removed"));
+                        } else {
+                            this.drain(ctx);
+                        }
+                    });
+                } catch (final RejectedExecutionException ex) {
+                    // the event loop has shut down, nothing will send the packet anymore
+                    this.fail(pending, ex);
+                }
+            });
+        } catch (final RejectedExecutionException ex) {
+            // the pool is busy or shut down, leave the packet to the compress stage
+            if (this.queue.isEmpty()) {
+                ctx.write(msg, promise);
+            } else {
+                this.queue.add(new Pending(msg, promise, false));
+            }
+            return;
+        }
+        this.queue.add(pending);
+    }
+
+    @Override
+    public void flush(final ChannelHandlerContext ctx) {
+        if (this.queue.isEmpty()) {
+            ctx.flush();
+        } else {
+            this.flushPending = true;
+        }
+    }
+
+    @Override
+    public void handlerRemoved(final ChannelHandlerContext ctx) {
+        this.removed = true;
+        // drop whatever has not been sent yet, the stream cannot be continued without this handler's packets;
+        // packets still being compressed are dropped once they are done
+        Pending pending;
+        while ((pending = this.queue.poll()) != null) {
+            if (!pending.offloaded) {
+                ReferenceCountUtil.release(pending.msg);
+                pending.promise.tryFailure(new IllegalStateException("Compression offload handler removed"));
+            } else if (pending.done) {
+                this.fail(pending, new IllegalStateException("Compression offload handler removed"));
+            }
+        }
+    }
+
+    private void drain(final ChannelHandlerContext ctx) {
+        if (this.removed) {
+            return;
+        }
+
+        final ChannelHandlerContext compressCtx = ctx.pipeline().context("compress");
+        Pending pending;
+        while ((pending = this.queue.peek()) != null && (!pending.offloaded || pending.done)) {
+            this.queue.poll();
+            if (!pending.offloaded) {
+                ctx.write(pending.msg, pending.promise);
+            } else if (pending.failure != null || compressCtx == null) {
+                // compression cannot have been disabled in between, but the packet cannot be sent compressed if it was
+                final Throwable failure = pending.failure != null ? pending.failure : new IllegalStateException("Compression was disabled while compressing a packet");
+                this.fail(pending, failure);
+                ctx.fireExceptionCaught(failure);
+            } else {
+                // skip the compress stage, the packet is already in its output format
+                compressCtx.write(pending.compressed, pending.promise);
+            }
+        }
+
+        if (this.queue.isEmpty() && this.flushPending) {
+            this.flushPending = false;
+            ctx.flush();
+        }
+    }
+
+    private void fail(final Pending pending, final Throwable failure) {
+        if (pending.compressed != null) {
+            pending.compressed.release();
+            pending.compressed = null;
+        }
+        pending.promise.tryFailure(failure);
+    }
+}
@@ -0,0 +1,197 @@
+package io.papermc.paper.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Measures the traffic of a connection at the socket: bytes received and sent, the packets waiting to be written,
+ * and how long it takes for a flush to reach the socket.
+ * <p>
+ * This handler sits in front of the head of the pipeline, so it sees every buffer that is read from and written
+ * to the socket. The counters are only written from the channel's event loop, which also computes the rates once a
+ * second, so all that is done per read or write is adding to a field. The outbound buffer of the channel is read on
+ * the event loop as well, after every flush and once a second, and its size is kept for readers on other threads.
+ * Once a second, the next flush also writes an empty buffer in front of the head of the pipeline, which completes
+ * once everything written before it has been written to the socket; the time that takes is the flush latency.
+ * </p>
+ */
+@NullMarked
+public final class ConnectionTelemetry extends ChannelDuplexHandler {
+
+    public static final String NAME = "telemetry";
+
+    private static final long SAMPLE_INTERVAL = TimeUnit.SECONDS.toNanos(1L);
+
+    private @Nullable ScheduledFuture<?> sampleTask;
+    private long lastSample;
+    private long bytesInAtSample;
+    private long bytesOutAtSample;
+    private boolean probeRequested;
+    private boolean probeOutstanding;
+
+    // only written from the event loop, read from anywhere
+    private volatile int unflushedWrites;
+    private volatile long bytesIn;
+    private volatile long bytesOut;
+    private volatile double bytesInPerSecond;
+    private volatile double bytesOutPerSecond;
+    private volatile long flushLatency;
+    // the time the outstanding flush latency probe was written at, 0 if there is none
+    private volatile long probeWrittenAt;
+    private volatile int queuedPackets;
+    private volatile long queuedBytes;
+
+    /**
+     * Returns the telemetry handler of the channel, or {@code null} if it does not have one.
+     */
+    public static @Nullable ConnectionTelemetry get(final Channel channel) {
+        return channel.pipeline().get(ConnectionTelemetry.class);
+    }
+
+    /**
+     * Returns the number of bytes read from the socket.
+     */
+    public long getBytesIn() {
+        return this.bytesIn;
+    }
+
+    /**
+     * Returns the number of bytes written to the channel.
+     */
+    public long getBytesOut() {
+        return this.bytesOut;
+    }
+
+    /**
+     * Returns the number of bytes read from the socket in the last second.
+     */
+    public double getBytesInPerSecond() {
+        return this.bytesInPerSecond;
+    }
+
+    /**
+     * Returns the number of bytes written to the channel in the last second.
+     */
+    public double getBytesOutPerSecond() {
+        return this.bytesOutPerSecond;
+    }
+
+    /**
+     * Returns the time it last took for a flush to reach the socket, in ns.
+     */
+    public long getFlushLatency() {
+        return this.flushLatency;
+    }
+
+    /**
+     * Returns the flush latency as of the specified time, in ns. Unlike {@link #getFlushLatency()}, this accounts
+     * for a probe that has not reached the socket yet, which is at least as late as it has been outstanding.
+     *
+     * @param time current time, in ns
+     */
+    public long getFlushLatency(final long time) {
+        final long probeWrittenAt = this.probeWrittenAt;
+        return probeWrittenAt == 0L ? this.flushLatency : Math.max(this.flushLatency, time - probeWrittenAt);
+    }
+
+    /**
+     * Returns the number of packets written to the channel that had not been written to the socket yet, as of the
+     * last flush or sample.
+     */
+    public int getQueuedPackets() {
+        return this.queuedPackets + this.unflushedWrites;
+    }
+
+    /**
+     * Returns the number of bytes flushed to the channel that had not been written to the socket yet, as of the last
+     * flush or sample.
+     */
+    public long getQueuedBytes() {
+        return this.queuedBytes;
+    }
+
+    private void updateQueued(final ChannelHandlerContext ctx) {
+        final ChannelOutboundBuffer buffer = ctx.channel().unsafe().outboundBuffer();
+        this.queuedPackets = buffer == null ? 0 : buffer.size();
+        this.queuedBytes = buffer == null ? 0L : buffer.totalPendingWriteBytes();
+    }
+
+    @Override
+    public void handlerAdded(final ChannelHandlerContext ctx) {
+        this.lastSample = System.nanoTime();
+        this.sampleTask = ctx.executor().scheduleAtFixedRate(() -> this.sample(ctx), SAMPLE_INTERVAL, SAMPLE_INTERVAL, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void handlerRemoved(final ChannelHandlerContext ctx) {
+        if (this.sampleTask != null) {
+            this.sampleTask.cancel(false);
+            this.sampleTask = null;
+        }
+    }
+
+    private void sample(final ChannelHandlerContext ctx) {
+        final long time = System.nanoTime();
+        final double seconds = (double)(time - this.lastSample) / 1.0E9;
+        final long bytesIn = this.bytesIn;
+        final long bytesOut = this.bytesOut;
+        this.bytesInPerSecond = (double)(bytesIn - this.bytesInAtSample) / seconds;
+        this.bytesOutPerSecond = (double)(bytesOut - this.bytesOutAtSample) / seconds;
+        this.bytesInAtSample = bytesIn;
+        this.bytesOutAtSample = bytesOut;
+        this.lastSample = time;
+        this.probeRequested = !this.probeOutstanding;
+        this.updateQueued(ctx);
+    }
+
+    private static int size(final Object msg) {
+        if (msg instanceof ByteBuf buf) {
+            return buf.readableBytes();
+        }
+        if (msg instanceof ByteBufHolder holder) {
+            return holder.content().readableBytes();
+        }
+        return 0;
+    }
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        this.bytesIn = this.bytesIn + size(msg);
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+        this.bytesOut = this.bytesOut + size(msg);
+        this.unflushedWrites = this.unflushedWrites + 1;
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(final ChannelHandlerContext ctx) {
+        this.unflushedWrites = 0;
+        if (this.probeRequested) {
+            this.probeRequested = false;
+            this.probeOutstanding = true;
+            final long time = System.nanoTime();
+            this.probeWrittenAt = time;
+            ctx.write(Unpooled.EMPTY_BUFFER).addListener(future -> {
+                this.flushLatency = System.nanoTime() - time;
+                this.probeWrittenAt = 0L;
+                this.probeOutstanding = false;
+            });
+        }
+        ctx.flush();
+        this.updateQueued(ctx);
+    }
+}
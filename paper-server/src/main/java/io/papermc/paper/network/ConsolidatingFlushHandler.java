@@ -0,0 +1,106 @@
+package io.papermc.paper.network;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Consolidates the flushes of a connection, so that a burst of packets reaches the socket with as few writes to it
+ * as possible, and counts the writes and flushes of the connection.
+ * <p>
+ * Every flush that reaches the socket is a system call. The main thread suspends flushing of player connections
+ * while it ticks and flushes each of them once at the end of the tick, but packets sent from other threads, in
+ * response to incoming packets or outside of the tick are each written and flushed on their own. Unlike the
+ * default {@link FlushConsolidationHandler}, which only consolidates the flushes made during a read, this one
+ * also holds back flushes made outside of reads until the event loop has run the tasks already queued on it, so
+ * that packets written by other threads in the meantime share one flush. To bound the memory and latency of a
+ * large burst, pending writes are flushed as soon as {@code explicitFlushAfterFlushes} flushes were held back.
+ * </p>
+ */
+@NullMarked
+public final class ConsolidatingFlushHandler extends FlushConsolidationHandler {
+
+    public static final String NAME = "flush_consolidation";
+    private static final String COUNTER_NAME = NAME + "_counter";
+
+    private final FlushCounter counter = new FlushCounter();
+
+    // only written from the event loop, read from anywhere
+    private volatile long writes;
+    private volatile long flushRequests;
+
+    public ConsolidatingFlushHandler(final int explicitFlushAfterFlushes) {
+        super(Math.max(1, explicitFlushAfterFlushes), true);
+    }
+
+    /**
+     * Returns the flush consolidation handler of the channel, or {@code null} if it does not have one.
+     */
+    public static @Nullable ConsolidatingFlushHandler get(final Channel channel) {
+        return channel.pipeline().get(ConsolidatingFlushHandler.class);
+    }
+
+    /**
+     * Returns the number of messages written to the channel.
+     */
+    public long getWrites() {
+        return this.writes;
+    }
+
+    /**
+     * Returns the number of flushes requested on the channel.
+     */
+    public long getFlushRequests() {
+        return this.flushRequests;
+    }
+
+    /**
+     * Returns the number of flushes passed on to the socket.
+     */
+    public long getFlushes() {
+        return this.counter.flushes;
+    }
+
+    @Override
+    public void handlerAdded(final ChannelHandlerContext ctx) throws Exception {
+        super.handlerAdded(ctx);
+        // the flushes passed on by this handler are counted between it and the socket
+        ctx.pipeline().addBefore(ctx.name(), COUNTER_NAME, this.counter);
+    }
+
+    @Override
+    public void handlerRemoved(final ChannelHandlerContext ctx) throws Exception {
+        super.handlerRemoved(ctx);
+        if (ctx.pipeline().get(COUNTER_NAME) == this.counter) {
+            ctx.pipeline().remove(this.counter);
+        }
+    }
+
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) throws Exception {
+        this.writes = this.writes + 1L;
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void flush(final ChannelHandlerContext ctx) throws Exception {
+        this.flushRequests = this.flushRequests + 1L;
+        super.flush(ctx);
+    }
+
+    private static final class FlushCounter extends ChannelOutboundHandlerAdapter {
+
+        // only written from the event loop, read from anywhere
+        private volatile long flushes;
+
+        @Override
+        public void flush(final ChannelHandlerContext ctx) {
+            this.flushes = this.flushes + 1L;
+            ctx.flush();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.papermc.paper.network;
+
+import io.papermc.paper.configuration.GlobalConfiguration;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.minecraft.network.protocol.BundlerInfo;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.server.network.ServerPlayerConnection;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Gathers the entity updates a level's entity tracker broadcasts during one tick, and sends them to each viewer as
+ * a single bundle at the end of the tracker tick.
+ * <p>
+ * Every tracked entity broadcasts its movement, rotation, metadata and attribute changes as separate packets to
+ * each of its viewers. With many players watching many entities, most of the cost of sending them is per packet
+ * rather than per byte: every packet is a separate write through the connection's pipeline and often a separate
+ * flush. A bundle goes through the pipeline as one write and is applied by the client within one frame, which also
+ * keeps the entities' updates in step with each other.
+ * </p>
+ * <p>
+ * Only packets broadcast to an entity's viewers are gathered. Packets sent to a single player, such as the pairing
+ * packets of an entity coming into view, are still sent immediately; the gathered updates always follow them.
+ * </p>
+ */
+@NullMarked
+public final class EntityUpdateBundler {
+
+    private final Reference2ObjectLinkedOpenHashMap<ServerPlayerConnection, List<Packet<? super ClientGamePacketListener>>> pending = new Reference2ObjectLinkedOpenHashMap<>();
+    private final List<List<Packet<? super ClientGamePacketListener>>> freeLists = new ArrayList<>();
+    private boolean active;
+
+    /**
+     * Starts gathering broadcast entity updates, if enabled. Must be called on the thread ticking the tracker.
+     */
+    public void start() {
+        this.active = GlobalConfiguration.get().misc.bundleEntityTrackerUpdates;
+    }
+
+    /**
+     * Queues a packet broadcast to the viewers of an entity.
+     *
+     * @return {@code false} if updates are not being gathered, in which case the packet must be sent as usual
+     */
+    @SuppressWarnings("unchecked")
+    public boolean queue(final Set<ServerPlayerConnection> viewers, final Packet<?> packet) {
+        if (!this.active) {
+            return false;
+        }
+
+        for (final ServerPlayerConnection viewer : viewers) {
+            List<Packet<? super ClientGamePacketListener>> packets = this.pending.get(viewer);
+            if (packets == null) {
+                packets = this.freeLists.isEmpty() ? new ArrayList<>() : this.freeLists.removeLast();
+                this.pending.put(viewer, packets);
+            }
+            if (packet instanceof ClientboundBundlePacket bundle) {
+                // bundles cannot be nested
+                for (final Packet<? super ClientGamePacketListener> subPacket : bundle.subPackets()) {
+                    packets.add(subPacket);
+                }
+            } else {
+                packets.add((Packet<? super ClientGamePacketListener>)packet);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends the gathered updates of every viewer and stops gathering.
+     */
+    public void flush() {
+        this.active = false;
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        for (final var entry : this.pending.reference2ObjectEntrySet()) {
+            final ServerPlayerConnection viewer = entry.getKey();
+            final List<Packet<? super ClientGamePacketListener>> packets = entry.getValue();
+            if (packets.size() == 1) {
+                viewer.send(packets.getFirst());
+            } else {
+                for (int from = 0, size = packets.size(); from < size; from += BundlerInfo.BUNDLE_SIZE_LIMIT) {
+                    final int to = Math.min(size, from + BundlerInfo.BUNDLE_SIZE_LIMIT);
+                    viewer.send(new ClientboundBundlePacket(new ArrayList<>(packets.subList(from, to))));
+                }
+            }
+            packets.clear();
+            this.freeLists.add(packets);
+        }
+        this.pending.clear();
+    }
+}
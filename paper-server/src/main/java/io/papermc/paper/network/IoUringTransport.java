@@ -0,0 +1,105 @@
+package io.papermc.paper.network;
+
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import java.net.SocketAddress;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import net.minecraft.DefaultUncaughtExceptionHandlerWithName;
+import org.jspecify.annotations.NullMarked;
+import org.slf4j.Logger;
+
+/**
+ * The io_uring transport for the server's connections, used instead of epoll when enabled and supported by the
+ * kernel.
+ * <p>
+ * io_uring submits reads and writes to the kernel through shared ring buffers instead of a system call each,
+ * which saves context switches on busy network threads. It requires Linux 5.9 or newer, and may be disabled by
+ * the kernel or by seccomp filters in containers; the server falls back to epoll or NIO whenever it is unavailable.
+ * </p>
+ */
+@NullMarked
+public final class IoUringTransport {
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    public static final Supplier<EventLoopGroup> SERVER_EVENT_GROUP = Suppliers.memoize(
+        () -> newEventLoopGroup(0, new ThreadFactoryBuilder().setNameFormat("Netty io_uring Server IO #%d").setDaemon(true).setUncaughtExceptionHandler(new DefaultUncaughtExceptionHandlerWithName(LOGGER)).build())
+    );
+
+    private static boolean warned;
+
+    private IoUringTransport() {
+    }
+
+    /**
+     * Returns whether the io_uring transport can be used on this system.
+     */
+    public static boolean isAvailable() {
+        return isAvailable(() -> IOUring.isAvailable());
+    }
+
+    static boolean isAvailable(final BooleanSupplier probe) {
+        try {
+            return probe.getAsBoolean();
+        } catch (final LinkageError error) {
+            // the transport's classes or natives are missing on this platform
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether a server listening on the address should use the io_uring transport. Logs why not, once, if
+     * the transport is enabled but unavailable.
+     *
+     * @param address the address to listen on
+     * @param nativeTransportEnabled whether the server may use native transports at all
+     */
+    public static boolean shouldUse(final SocketAddress address, final boolean nativeTransportEnabled) {
+        return shouldUse(address, nativeTransportEnabled, GlobalConfiguration.get().misc.ioUringTransport, () -> IOUring.isAvailable());
+    }
+
+    static synchronized boolean shouldUse(final SocketAddress address, final boolean nativeTransportEnabled, final boolean enabled, final BooleanSupplier probe) {
+        // there is no io_uring channel for unix domain sockets, those are left to epoll
+        if (!enabled || !nativeTransportEnabled || address instanceof DomainSocketAddress) {
+            return false;
+        }
+        if (isAvailable(probe)) {
+            return true;
+        }
+        if (!warned) {
+            warned = true;
+            Throwable cause;
+            try {
+                cause = IOUring.unavailabilityCause();
+            } catch (final LinkageError error) {
+                cause = error;
+            }
+            LOGGER.warn("The io_uring transport is enabled but unavailable on this system, falling back to the default transport: {}", String.valueOf(cause));
+        }
+        return false;
+    }
+
+    public static EventLoopGroup newEventLoopGroup(final int threads, final ThreadFactory threadFactory) {
+        return new IOUringEventLoopGroup(threads, threadFactory);
+    }
+
+    public static Class<? extends ServerChannel> serverChannel() {
+        return IOUringServerSocketChannel.class;
+    }
+
+    public static Class<? extends SocketChannel> clientChannel() {
+        return IOUringSocketChannel.class;
+    }
+}
@@ -0,0 +1,109 @@
+package io.papermc.paper.network;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * A fixed size ring of the most recent keepalive round trip times of a connection.
+ * <p>
+ * Each sample is packed into a single long, holding the time the keepalive was sent in milliseconds since the ring
+ * was created in its upper half and the round trip time in microseconds in its lower half, so that samples are
+ * written and read atomically without any locking. Writing a sample overwrites the oldest one. Readers copy the
+ * ring and only consider samples sent within a window before the newest one, so samples overwritten while they are
+ * read are never mixed up with stale ones.
+ * </p>
+ * <p>
+ * One keepalive is sent a second, so the ring holds a little over a minute of samples.
+ * </p>
+ */
+@NullMarked
+public final class LatencySamples {
+
+    private static final int CAPACITY = 64; // must be a power of two
+    private static final long MAX_LATENCY_US = 0xFFFFFFFFL;
+
+    private final long epoch = System.nanoTime();
+    private final AtomicLongArray samples = new AtomicLongArray(CAPACITY);
+    private final AtomicInteger writeIndex = new AtomicInteger();
+
+    /**
+     * Records the round trip time of a keepalive.
+     *
+     * @param txTimeNS the time the keepalive was sent, in ns
+     * @param rxTimeNS the time the response was received, in ns
+     */
+    public void record(final long txTimeNS, final long rxTimeNS) {
+        final long latencyUS = Math.max(1L, Math.min(MAX_LATENCY_US, TimeUnit.NANOSECONDS.toMicros(rxTimeNS - txTimeNS)));
+        final long txTimeMS = TimeUnit.NANOSECONDS.toMillis(txTimeNS - this.epoch) & 0xFFFFFFFFL;
+        final int index = this.writeIndex.getAndIncrement() & (CAPACITY - 1);
+        this.samples.set(index, (txTimeMS << 32) | latencyUS);
+    }
+
+    /**
+     * Returns the round trip times, in ns, of the keepalives sent within the specified window before the newest
+     * sample, in no particular order.
+     *
+     * @param windowNS the window, in ns
+     */
+    public long[] getLatenciesNS(final long windowNS) {
+        final long[] copy = new long[CAPACITY];
+        int newest = -1;
+        for (int i = 0; i < CAPACITY; ++i) {
+            final long sample = this.samples.get(i);
+            copy[i] = sample;
+            if (sample != 0L && (newest == -1 || (int)((sample >>> 32) - (copy[newest] >>> 32)) > 0)) {
+                newest = i;
+            }
+        }
+        if (newest == -1) {
+            return new long[0];
+        }
+
+        final int newestTxMS = (int)(copy[newest] >>> 32);
+        final long windowMS = TimeUnit.NANOSECONDS.toMillis(windowNS);
+        final long[] ret = new long[CAPACITY];
+        int count = 0;
+        for (final long sample : copy) {
+            // the send times wrap around after about 49 days, compare them as the difference of two ints
+            if (sample != 0L && newestTxMS - (int)(sample >>> 32) <= windowMS) {
+                ret[count++] = TimeUnit.MICROSECONDS.toNanos(sample & 0xFFFFFFFFL);
+            }
+        }
+        return count == CAPACITY ? ret : Arrays.copyOf(ret, count);
+    }
+
+    /**
+     * Returns the average round trip time, in ns, of the keepalives sent within the specified window before the
+     * newest sample, or {@code 0} if there are no samples.
+     *
+     * @param windowNS the window, in ns
+     */
+    public long getAverageLatencyNS(final long windowNS) {
+        final long[] latencies = this.getLatenciesNS(windowNS);
+        if (latencies.length == 0) {
+            return 0L;
+        }
+        long sum = 0L;
+        for (final long latency : latencies) {
+            sum += latency;
+        }
+        return sum / latencies.length;
+    }
+
+    /**
+     * Returns the value at the specified percentile of the sorted values, or {@code 0} if there are none.
+     *
+     * @param sorted the values, sorted in ascending order
+     * @param percentile the percentile, between {@code 0} and {@code 1}
+     */
+    public static long percentile(final long[] sorted, final double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        final int index = (int)Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
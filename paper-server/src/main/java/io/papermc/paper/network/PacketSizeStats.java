@@ -0,0 +1,172 @@
+package io.papermc.paper.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.NettyRuntime;
+import io.papermc.paper.configuration.GlobalConfiguration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import net.minecraft.network.protocol.PacketType;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Records the encoded size of every packet type, and sizes the buffers packets are encoded into from them.
+ * <p>
+ * Packets are encoded into a buffer of a default initial size, which is grown, by allocating a larger buffer and
+ * copying everything written so far, as often as needed. Chunk, recipe book and command tree packets run through
+ * several of those copies every time they are sent. Instead, each packet type keeps a histogram of its encoded
+ * sizes in power of two size classes, and its buffers start out at the size class that fits nine in ten of the
+ * packets of that type.
+ * </p>
+ * <p>
+ * Connections can also allocate their buffers from an allocator of their own, with an arena for every network
+ * thread so that threads encoding packets at peak join times do not contend for the same arena, and with chunks
+ * large enough to hold full chunk packets.
+ * </p>
+ */
+@NullMarked
+public final class PacketSizeStats {
+
+    // size classes up to the largest packet the encoder accepts, 8 MiB
+    private static final int SIZE_CLASSES = 24;
+    private static final int DEFAULT_INITIAL_SIZE = 256;
+    private static final int MAX_INITIAL_SIZE = 1 << 21;
+    private static final double PREDICTED_FRACTION = 0.90;
+    // how many packets are recorded between recomputing the initial size
+    private static final int PREDICTION_INTERVAL = 256;
+
+    private static final ConcurrentHashMap<PacketType<?>, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static @Nullable PooledByteBufAllocator allocator;
+
+    private PacketSizeStats() {
+    }
+
+    /**
+     * Records the encoded size of a packet of the specified type.
+     */
+    public static void record(final PacketType<?> type, final int size) {
+        if (!GlobalConfiguration.get().misc.presizePacketBuffers) {
+            return;
+        }
+        HISTOGRAMS.computeIfAbsent(type, Histogram::new).record(size);
+    }
+
+    /**
+     * Allocates the buffer to encode a packet of the specified type into.
+     */
+    public static ByteBuf allocateBuffer(final ChannelHandlerContext ctx, final PacketType<?> type, final boolean preferDirect) {
+        int initialSize = DEFAULT_INITIAL_SIZE;
+        if (GlobalConfiguration.get().misc.presizePacketBuffers) {
+            final Histogram histogram = HISTOGRAMS.get(type);
+            if (histogram != null) {
+                initialSize = histogram.initialSize;
+            }
+        }
+        return preferDirect ? ctx.alloc().ioBuffer(initialSize) : ctx.alloc().heapBuffer(initialSize);
+    }
+
+    /**
+     * Returns the allocator connections allocate their buffers from, if they use their own.
+     */
+    public static synchronized PooledByteBufAllocator allocator() {
+        if (allocator == null) {
+            final int arenas = NettyRuntime.availableProcessors() * 2; // one per thread of the default event loop group
+            allocator = new PooledByteBufAllocator(
+                true,
+                Math.max(1, arenas / 4), // heap buffers are only used for the odd fallback
+                arenas,
+                8192, // page size
+                9, // 4 MiB chunks, larger than nearly every chunk packet
+                256, // small buffers, below 28 KiB
+                128, // normal buffers, most chunk and entity data packets
+                false, // only cache buffers for the network threads, which allocate and free nearly all of them
+                0
+            );
+        }
+        return allocator;
+    }
+
+    /**
+     * Returns the allocator in use by connections.
+     */
+    public static ByteBufAllocator currentAllocator() {
+        return GlobalConfiguration.get().misc.serverBufferAllocator ? allocator() : ByteBufAllocator.DEFAULT;
+    }
+
+    /**
+     * Returns a snapshot of the recorded histograms, largest total size first.
+     */
+    public static List<Snapshot> snapshot() {
+        final List<Snapshot> ret = new ArrayList<>(HISTOGRAMS.size());
+        for (final Histogram histogram : HISTOGRAMS.values()) {
+            ret.add(histogram.snapshot());
+        }
+        ret.sort(Comparator.comparingLong(Snapshot::totalBytes).reversed());
+        return ret;
+    }
+
+    /**
+     * Clears the recorded histograms.
+     */
+    public static void reset() {
+        HISTOGRAMS.clear();
+    }
+
+    private static int sizeClass(final int size) {
+        return size <= 1 ? 0 : Math.min(SIZE_CLASSES - 1, 32 - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    public record Snapshot(PacketType<?> type, long count, long totalBytes, int max, int median, int percentile90, int initialSize) {}
+
+    private static final class Histogram {
+
+        private final PacketType<?> type;
+        private final AtomicLongArray sizeClasses = new AtomicLongArray(SIZE_CLASSES);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalBytes = new AtomicLong();
+        private volatile int max;
+        private volatile int initialSize = DEFAULT_INITIAL_SIZE;
+
+        private Histogram(final PacketType<?> type) {
+            this.type = type;
+        }
+
+        private void record(final int size) {
+            this.sizeClasses.incrementAndGet(sizeClass(size));
+            this.totalBytes.addAndGet(size);
+            if (size > this.max) {
+                this.max = size; // racy, only used for display
+            }
+            if (this.count.incrementAndGet() % PREDICTION_INTERVAL == 0L) {
+                this.initialSize = Math.max(DEFAULT_INITIAL_SIZE, Math.min(MAX_INITIAL_SIZE, this.percentile(PREDICTED_FRACTION)));
+            }
+        }
+
+        private int percentile(final double fraction) {
+            long total = 0L;
+            for (int i = 0; i < SIZE_CLASSES; ++i) {
+                total += this.sizeClasses.get(i);
+            }
+            final long target = (long)Math.ceil(total * fraction);
+            long seen = 0L;
+            for (int i = 0; i < SIZE_CLASSES; ++i) {
+                seen += this.sizeClasses.get(i);
+                if (seen >= target) {
+                    return 1 << i;
+                }
+            }
+            return 1 << (SIZE_CLASSES - 1);
+        }
+
+        private Snapshot snapshot() {
+            return new Snapshot(this.type, this.count.get(), this.totalBytes.get(), this.max, this.percentile(0.5), this.percentile(PREDICTED_FRACTION), this.initialSize);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.papermc.paper.network;
+
+import io.netty.channel.Channel;
+import io.papermc.paper.connection.NetworkStatistics;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.network.ServerCommonPacketListenerImpl;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+@NullMarked
+public record PaperNetworkStatistics(
+    double roundTripTimeMedian,
+    double roundTripTime95thPercentile,
+    double roundTripTime99thPercentile,
+    int roundTripTimeSamples,
+    double bytesReceivedPerSecond,
+    double bytesSentPerSecond,
+    int queuedPackets,
+    long queuedBytes,
+    double flushLatency
+) implements NetworkStatistics {
+
+    // the window of round trip times the percentiles are computed over, about as long as the samples are kept
+    private static final long ROUND_TRIP_TIME_WINDOW = TimeUnit.MINUTES.toNanos(1L);
+
+    public static PaperNetworkStatistics of(final ServerCommonPacketListenerImpl listener) {
+        return aggregate(new long[][] { listener.keepAlive.latencySamples.getLatenciesNS(ROUND_TRIP_TIME_WINDOW) }, new @Nullable Channel[] { listener.connection.channel });
+    }
+
+    public static PaperNetworkStatistics aggregate(final Collection<ServerPlayer> players) {
+        final long[][] latencies = new long[players.size()][];
+        final @Nullable Channel[] channels = new Channel[players.size()];
+        int count = 0;
+        for (final ServerPlayer player : players) {
+            if (player.connection == null) {
+                continue;
+            }
+            latencies[count] = player.connection.keepAlive.latencySamples.getLatenciesNS(ROUND_TRIP_TIME_WINDOW);
+            channels[count] = player.connection.connection.channel;
+            ++count;
+        }
+        return aggregate(Arrays.copyOf(latencies, count), Arrays.copyOf(channels, count));
+    }
+
+    private static PaperNetworkStatistics aggregate(final long[][] latencies, final @Nullable Channel[] channels) {
+        int samples = 0;
+        for (final long[] connectionLatencies : latencies) {
+            samples += connectionLatencies.length;
+        }
+        final long[] sorted = new long[samples];
+        int offset = 0;
+        for (final long[] connectionLatencies : latencies) {
+            System.arraycopy(connectionLatencies, 0, sorted, offset, connectionLatencies.length);
+            offset += connectionLatencies.length;
+        }
+        Arrays.sort(sorted);
+
+        double bytesIn = 0.0;
+        double bytesOut = 0.0;
+        int queuedPackets = 0;
+        long queuedBytes = 0L;
+        long flushLatency = 0L;
+        int measured = 0;
+        for (final Channel channel : channels) {
+            if (channel == null) {
+                continue;
+            }
+            final ConnectionTelemetry telemetry = ConnectionTelemetry.get(channel);
+            if (telemetry != null) {
+                queuedPackets += telemetry.getQueuedPackets();
+                queuedBytes += telemetry.getQueuedBytes();
+                bytesIn += telemetry.getBytesInPerSecond();
+                bytesOut += telemetry.getBytesOutPerSecond();
+                flushLatency += telemetry.getFlushLatency();
+                ++measured;
+            }
+        }
+
+        return new PaperNetworkStatistics(
+            millis(LatencySamples.percentile(sorted, 0.50)),
+            millis(LatencySamples.percentile(sorted, 0.95)),
+            millis(LatencySamples.percentile(sorted, 0.99)),
+            samples,
+            bytesIn,
+            bytesOut,
+            queuedPackets,
+            queuedBytes,
+            measured == 0 ? 0.0 : millis(flushLatency / measured)
+        );
+    }
+
+    private static double millis(final long nanos) {
+        return (double)nanos / 1.0E6;
+    }
+}
@@ -4,6 +4,8 @@ import co.aikar.timings.TimedEventExecutor;
 import com.destroystokyo.paper.event.server.ServerExceptionEvent;
 import com.destroystokyo.paper.exception.ServerEventException;
 import com.google.common.collect.Sets;
+import io.papermc.paper.event.executor.HandlerChain;
+import io.papermc.paper.plugin.profiler.ProfiledEventExecutor;
 import org.bukkit.Server;
 import org.bukkit.Warning;
 import org.bukkit.event.Event;
@@ -29,6 +31,7 @@ import java.util.logging.Level;
 class PaperEventManager {
 
     private final Server server;
+    private boolean compileHandlerChains;
 
     public PaperEventManager(Server server) {
         this.server = server;
@@ -43,6 +46,11 @@ class PaperEventManager {
         }
 
         HandlerList handlers = event.getHandlers();
+        HandlerChain chain = handlers.getHandlerChain();
+        if (chain != null) {
+            chain.callEvent(event);
+            return;
+        }
         RegisteredListener[] listeners = handlers.getRegisteredListeners();
 
         for (RegisteredListener registration : listeners) {
@@ -52,27 +60,46 @@ class PaperEventManager {
 
             try {
                 registration.callEvent(event);
-            } catch (AuthorNagException ex) {
-                Plugin plugin = registration.getPlugin();
-
-                if (plugin.isNaggable()) {
-                    plugin.setNaggable(false);
-
-                    this.server.getLogger().log(Level.SEVERE, String.format(
-                        "Nag author(s): '%s' of '%s' about the following: %s",
-                        plugin.getPluginMeta().getAuthors(),
-                        plugin.getPluginMeta().getDisplayName(),
-                        ex.getMessage()
-                    ));
-                }
             } catch (Throwable ex) {
-                String msg = "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getPluginMeta().getDisplayName();
-                this.server.getLogger().log(Level.SEVERE, msg, ex);
-                if (!(event instanceof ServerExceptionEvent)) { // We don't want to cause an endless event loop
-                    this.callEvent(new ServerExceptionEvent(new ServerEventException(msg, ex, registration.getPlugin(), registration.getListener(), event)));
-                }
+                this.handleException(registration, event, ex);
+            }
+        }
+    }
+
+    private void handleException(@NotNull RegisteredListener registration, @NotNull Event event, @NotNull Throwable ex) {
+        if (ex instanceof AuthorNagException) {
+            Plugin plugin = registration.getPlugin();
+
+            if (plugin.isNaggable()) {
+                plugin.setNaggable(false);
+
+                this.server.getLogger().log(Level.SEVERE, String.format(
+                    "Nag author(s): '%s' of '%s' about the following: %s",
+                    plugin.getPluginMeta().getAuthors(),
+                    plugin.getPluginMeta().getDisplayName(),
+                    ex.getMessage()
+                ));
             }
+            return;
+        }
+
+        String msg = "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getPluginMeta().getDisplayName();
+        this.server.getLogger().log(Level.SEVERE, msg, ex);
+        if (!(event instanceof ServerExceptionEvent)) { // We don't want to cause an endless event loop
+            this.callEvent(new ServerExceptionEvent(new ServerEventException(msg, ex, registration.getPlugin(), registration.getListener(), event)));
+        }
+    }
+
+    /**
+     * Sets whether the listeners of every event are compiled into a single
+     * chain of calls whenever they change, instead of being called one by one.
+     */
+    public synchronized void compileHandlerChains(boolean compile) {
+        if (this.compileHandlerChains == compile) {
+            return;
         }
+        this.compileHandlerChains = compile;
+        HandlerList.compileHandlerChains(compile ? this::handleException : null);
     }
 
     public void registerEvents(@NotNull Listener listener, @NotNull Plugin plugin) {
@@ -95,7 +122,7 @@ class PaperEventManager {
             throw new IllegalPluginAccessException("Plugin attempted to register " + event + " while not enabled");
         }
 
-        executor = new TimedEventExecutor(executor, plugin, null, event);
+        executor = new ProfiledEventExecutor(new TimedEventExecutor(executor, plugin, null, event), executor, plugin, null, event);
         this.getEventListeners(event).register(new RegisteredListener(listener, executor, priority, plugin, ignoreCancelled));
     }
 
@@ -182,7 +209,8 @@ class PaperEventManager {
                 }
             }
 
-            EventExecutor executor = new TimedEventExecutor(EventExecutor.create(method, eventClass), plugin, method, eventClass);
+            EventExecutor executor = EventExecutor.create(method, eventClass);
+            executor = new ProfiledEventExecutor(new TimedEventExecutor(executor, plugin, method, eventClass), executor, plugin, method, eventClass);
             eventSet.add(new RegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled()));
         }
         return ret;
@@ -318,6 +318,7 @@ class PaperPluginInstanceManager {
             this.handlePluginException("Error occurred (in the plugin loader) while removing chunk tickets for " + pluginName + " (Is it up to date?)", ex, plugin); // Paper
         }
 
+        io.papermc.paper.plugin.profiler.PluginProfiler.removePlugin(plugin); // Paper - plugin profiler
     }
 
     private void handlePluginException(String msg, Throwable ex, Plugin plugin) {
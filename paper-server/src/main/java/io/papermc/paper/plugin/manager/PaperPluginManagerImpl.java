@@ -131,6 +131,10 @@ public class PaperPluginManagerImpl implements PluginManager, DependencyContext
         this.paperEventManager.callEvent(event);
     }
 
+    public void compileHandlerChains(boolean compile) {
+        this.paperEventManager.compileHandlerChains(compile);
+    }
+
     @Override
     public void registerEvents(@NotNull Listener listener, @NotNull Plugin plugin) {
         this.paperEventManager.registerEvents(listener, plugin);
@@ -0,0 +1,196 @@
+package io.papermc.paper.plugin.profiler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Records the time the listeners and tasks of plugins take on the server thread, over a rolling window of the
+ * last minute.
+ * <p>
+ * Time is attributed to the source it was spent in: a listener method and the event it handles, or the class of a
+ * scheduler or entity scheduler task. Every source keeps its time and calls in a ring of buckets of
+ * {@link #BUCKET_TICKS} ticks each, made of striped counters so recording never contends, and the oldest bucket
+ * is cleared and reused whenever the current one is full. The time of a listener includes the time of any event
+ * it calls itself.
+ * </p>
+ * <p>
+ * Lambdas are attributed to the class declaring them, as the names of their own classes differ between every load
+ * of a plugin, and the sources of a plugin are dropped when it is disabled, so reloading plugins does not grow the
+ * recorded sources.
+ * </p>
+ * <p>
+ * While disabled, recording costs a single volatile read, so the profiler may be left enabled permanently.
+ * </p>
+ */
+@NullMarked
+public final class PluginProfiler {
+
+    private static final int BUCKETS = 6;
+    private static final int BUCKET_TICKS = 20 * 10;
+
+    private static final String LAMBDA_MARKER = "$$Lambda";
+
+    private static final ConcurrentHashMap<Key, Entry> ENTRIES = new ConcurrentHashMap<>();
+    // only modified by the server thread
+    private static final int[] BUCKET_TICK_COUNTS = new int[BUCKETS];
+    private static volatile int bucket;
+    private static volatile boolean enabled;
+
+    public enum Kind {
+        EVENT_LISTENER,
+        SCHEDULER_TASK,
+        ENTITY_TASK
+    }
+
+    private record Key(Kind kind, String plugin, String name) {}
+
+    /**
+     * The time spent in a source within the window.
+     *
+     * @param kind the kind of source
+     * @param plugin the name of the plugin owning the source
+     * @param name the name of the source
+     * @param nanos the time spent, in nanoseconds
+     * @param calls the times the source was called
+     */
+    public record Sample(Kind kind, String plugin, String name, long nanos, long calls) {}
+
+    /**
+     * The sources time was spent in within the window, most expensive first.
+     *
+     * @param ticks the ticks the window spans
+     * @param samples the sources
+     */
+    public record Snapshot(int ticks, List<Sample> samples) {}
+
+    public static final class Entry {
+
+        private final Key key;
+        private final LongAdder[] nanos = new LongAdder[BUCKETS];
+        private final LongAdder[] calls = new LongAdder[BUCKETS];
+
+        private Entry(final Key key) {
+            this.key = key;
+            for (int i = 0; i < BUCKETS; ++i) {
+                this.nanos[i] = new LongAdder();
+                this.calls[i] = new LongAdder();
+            }
+        }
+
+        public void record(final long nanos) {
+            final int bucket = PluginProfiler.bucket;
+            this.nanos[bucket].add(nanos);
+            this.calls[bucket].increment();
+        }
+
+        private void reset(final int bucket) {
+            this.nanos[bucket].reset();
+            this.calls[bucket].reset();
+        }
+
+        private Sample sample() {
+            long nanos = 0L;
+            long calls = 0L;
+            for (int i = 0; i < BUCKETS; ++i) {
+                nanos += this.nanos[i].sum();
+                calls += this.calls[i].sum();
+            }
+            return new Sample(this.key.kind(), this.key.plugin(), this.key.name(), nanos, calls);
+        }
+    }
+
+    private PluginProfiler() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(final boolean enabled) {
+        if (enabled && !PluginProfiler.enabled) {
+            // don't show what was recorded before the profiler was last disabled
+            reset();
+        }
+        PluginProfiler.enabled = enabled;
+    }
+
+    /**
+     * Returns the entry recording the time spent in the specified source, creating it if needed. Entries are
+     * keyed by the name of their plugin, so they do not keep the plugin loaded.
+     */
+    public static Entry entry(final Kind kind, final Plugin plugin, final String name) {
+        return ENTRIES.computeIfAbsent(new Key(kind, plugin.getName(), name), Entry::new);
+    }
+
+    /**
+     * Returns the name of a source class that stays the same between loads of its plugin.
+     */
+    public static String sourceName(final Class<?> clazz) {
+        final String name = clazz.getName();
+        // hidden classes of lambdas are suffixed with an address, such as Listener$$Lambda/0x00007f0c2c0a1234
+        final int lambda = name.indexOf(LAMBDA_MARKER);
+        return lambda == -1 ? name : name.substring(0, lambda + LAMBDA_MARKER.length());
+    }
+
+    /**
+     * Drops the sources of the plugin. Called when the plugin is disabled.
+     */
+    public static void removePlugin(final Plugin plugin) {
+        final String name = plugin.getName();
+        ENTRIES.keySet().removeIf(key -> key.plugin().equals(name));
+    }
+
+    /**
+     * Advances the window by a tick. Called by the server thread once every tick.
+     */
+    public static void tick() {
+        if (!enabled) {
+            return;
+        }
+        final int current = bucket;
+        if (++BUCKET_TICK_COUNTS[current] < BUCKET_TICKS) {
+            return;
+        }
+        final int next = (current + 1) % BUCKETS;
+        for (final Entry entry : ENTRIES.values()) {
+            entry.reset(next);
+        }
+        BUCKET_TICK_COUNTS[next] = 0;
+        bucket = next;
+    }
+
+    /**
+     * Clears the time recorded for all sources.
+     */
+    public static void reset() {
+        for (final Entry entry : ENTRIES.values()) {
+            for (int i = 0; i < BUCKETS; ++i) {
+                entry.reset(i);
+            }
+        }
+        for (int i = 0; i < BUCKETS; ++i) {
+            BUCKET_TICK_COUNTS[i] = 0;
+        }
+    }
+
+    public static Snapshot snapshot() {
+        int ticks = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            ticks += BUCKET_TICK_COUNTS[i];
+        }
+        final List<Sample> samples = new ArrayList<>();
+        for (final Entry entry : ENTRIES.values()) {
+            final Sample sample = entry.sample();
+            if (sample.calls() != 0L) {
+                samples.add(sample);
+            }
+        }
+        samples.sort(Comparator.comparingLong(Sample::nanos).reversed());
+        return new Snapshot(ticks, samples);
+    }
+}
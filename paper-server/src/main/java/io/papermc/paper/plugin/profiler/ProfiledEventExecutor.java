@@ -0,0 +1,48 @@
+package io.papermc.paper.plugin.profiler;
+
+import java.lang.reflect.Method;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Records the time an executor takes to handle synchronous events in the {@link PluginProfiler}.
+ */
+@NullMarked
+public final class ProfiledEventExecutor implements EventExecutor {
+
+    private final EventExecutor executor;
+    private final PluginProfiler.Entry entry;
+
+    /**
+     * @param executor the executor to wrap
+     * @param handler the executor calling the listener, named after when there is no handler method
+     * @param plugin the plugin owning the listener
+     * @param method the handler method, if any
+     * @param eventClass the class of the handled events
+     */
+    public ProfiledEventExecutor(final EventExecutor executor, final EventExecutor handler, final Plugin plugin, final @Nullable Method method, final Class<? extends Event> eventClass) {
+        this.executor = executor;
+        final String source = method == null ? PluginProfiler.sourceName(handler.getClass()) : method.getDeclaringClass().getName() + "#" + method.getName();
+        this.entry = PluginProfiler.entry(PluginProfiler.Kind.EVENT_LISTENER, plugin, source + " (" + eventClass.getSimpleName() + ")");
+    }
+
+    @Override
+    public void execute(final Listener listener, final Event event) throws EventException {
+        // asynchronous events do not hold up the server thread
+        if (!PluginProfiler.isEnabled() || event.isAsynchronous()) {
+            this.executor.execute(listener, event);
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            this.executor.execute(listener, event);
+        } finally {
+            this.entry.record(System.nanoTime() - start);
+        }
+    }
+}
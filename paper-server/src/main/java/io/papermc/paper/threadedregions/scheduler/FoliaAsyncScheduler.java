@@ -2,13 +2,13 @@ package io.papermc.paper.threadedregions.scheduler;
 
 import ca.spottedleaf.concurrentutil.util.Validate;
 import com.mojang.logging.LogUtils;
+import io.papermc.paper.util.concurrent.AsyncTaskExecutor;
 import org.bukkit.plugin.IllegalPluginAccessException;
 import org.bukkit.plugin.Plugin;
 import org.slf4j.Logger;
 
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -24,7 +24,7 @@ public final class FoliaAsyncScheduler implements AsyncScheduler {
 
     private static final Logger LOGGER = LogUtils.getClassLogger();
 
-    private final Executor executors = new ThreadPoolExecutor(Math.max(4, Runtime.getRuntime().availableProcessors() / 2), Integer.MAX_VALUE,
+    private final AsyncTaskExecutor executors = new AsyncTaskExecutor("Folia Async Scheduler Virtual Thread", new ThreadPoolExecutor(Math.max(4, Runtime.getRuntime().availableProcessors() / 2), Integer.MAX_VALUE,
         30L, TimeUnit.SECONDS, new SynchronousQueue<>(),
         new ThreadFactory() {
             private final AtomicInteger idGenerator = new AtomicInteger();
@@ -42,7 +42,7 @@ public final class FoliaAsyncScheduler implements AsyncScheduler {
                 return ret;
             }
         }
-    );
+    ));
 
     private final ScheduledExecutorService timerThread = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         @Override
@@ -73,7 +73,7 @@ public final class FoliaAsyncScheduler implements AsyncScheduler {
         final AsyncScheduledTask ret = new AsyncScheduledTask(plugin, -1L, task, null, -1L);
 
         this.tasks.add(ret);
-        this.executors.execute(ret);
+        this.executors.execute(plugin, ret);
 
         if (!plugin.isEnabled()) {
             // handle race condition where plugin is disabled asynchronously
@@ -209,7 +209,7 @@ public final class FoliaAsyncScheduler implements AsyncScheduler {
             if (timer) {
                 // the scheduled executor is single thread, and unfortunately not expandable with threads
                 // so we just schedule onto the executor
-                FoliaAsyncScheduler.this.executors.execute(this);
+                FoliaAsyncScheduler.this.executors.execute(this.plugin, this);
                 return;
             }
 
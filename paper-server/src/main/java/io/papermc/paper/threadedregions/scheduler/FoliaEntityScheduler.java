@@ -2,6 +2,7 @@ package io.papermc.paper.threadedregions.scheduler;
 
 import ca.spottedleaf.concurrentutil.util.ConcurrentUtil;
 import ca.spottedleaf.concurrentutil.util.Validate;
+import io.papermc.paper.plugin.profiler.PluginProfiler;
 import net.minecraft.world.entity.Entity;
 import org.bukkit.craftbukkit.entity.CraftEntity;
 import org.bukkit.plugin.IllegalPluginAccessException;
@@ -24,17 +25,7 @@ public final class FoliaEntityScheduler implements EntityScheduler {
         Validate.notNull(plugin, "Plugin may not be null");
         Validate.notNull(runnable, "Runnable may not be null");
 
-        return (final Entity nmsEntity) -> {
-            if (!plugin.isEnabled()) {
-                // don't execute if the plugin is disabled
-                return;
-            }
-            try {
-                runnable.run();
-            } catch (final Throwable throwable) {
-                plugin.getLogger().log(Level.WARNING, "Entity task for " + plugin.getDescription().getFullName() + " generated an exception", throwable);
-            }
-        };
+        return new WrappedTask(plugin, runnable);
     }
 
     @Override
@@ -112,6 +103,44 @@ public final class FoliaEntityScheduler implements EntityScheduler {
         return this.entity.taskScheduler.schedule(ret, ret, delay);
     }
 
+    private static final class WrappedTask implements Consumer<Entity> {
+
+        private final Plugin plugin;
+        private final Runnable runnable;
+        private PluginProfiler.Entry profilerEntry;
+
+        private WrappedTask(final Plugin plugin, final Runnable runnable) {
+            this.plugin = plugin;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void accept(final Entity nmsEntity) {
+            if (!this.plugin.isEnabled()) {
+                // don't execute if the plugin is disabled
+                return;
+            }
+            final boolean profile = PluginProfiler.isEnabled();
+            final long start = profile ? System.nanoTime() : 0L;
+            try {
+                this.runnable.run();
+            } catch (final Throwable throwable) {
+                this.plugin.getLogger().log(Level.WARNING, "Entity task for " + this.plugin.getDescription().getFullName() + " generated an exception", throwable);
+            } finally {
+                if (profile) {
+                    this.getProfilerEntry().record(System.nanoTime() - start);
+                }
+            }
+        }
+
+        private PluginProfiler.Entry getProfilerEntry() {
+            if (this.profilerEntry == null) {
+                this.profilerEntry = PluginProfiler.entry(PluginProfiler.Kind.ENTITY_TASK, this.plugin, PluginProfiler.sourceName(this.runnable.getClass()));
+            }
+            return this.profilerEntry;
+        }
+    }
+
     private final class EntityScheduledTask implements ScheduledTask, Consumer<Entity> {
 
         private static final int STATE_IDLE                = 0;
@@ -125,6 +154,7 @@ public final class FoliaEntityScheduler implements EntityScheduler {
         private Consumer<ScheduledTask> run;
         private Runnable retired;
         private volatile int state;
+        private PluginProfiler.Entry profilerEntry;
 
         private static final VarHandle STATE_HANDLE = ConcurrentUtil.getVarHandle(EntityScheduledTask.class, "state", int.class);
 
@@ -162,6 +192,8 @@ public final class FoliaEntityScheduler implements EntityScheduler {
             }
 
             final boolean retired = entity.isRemoved();
+            final boolean profile = PluginProfiler.isEnabled();
+            final long start = profile ? System.nanoTime() : 0L;
 
             try {
                 if (!retired) {
@@ -174,6 +206,9 @@ public final class FoliaEntityScheduler implements EntityScheduler {
             } catch (final Throwable throwable) {
                 this.plugin.getLogger().log(Level.WARNING, "Entity task for " + this.plugin.getDescription().getFullName() + " generated an exception", throwable);
             } finally {
+                if (profile) {
+                    this.getProfilerEntry().record(System.nanoTime() - start);
+                }
                 boolean reschedule = false;
                  if (!repeating && !retired) {
                     this.setStateVolatile(STATE_FINISHED);
@@ -195,6 +230,13 @@ public final class FoliaEntityScheduler implements EntityScheduler {
             }
         }
 
+        private PluginProfiler.Entry getProfilerEntry() {
+            if (this.profilerEntry == null) {
+                this.profilerEntry = PluginProfiler.entry(PluginProfiler.Kind.ENTITY_TASK, this.plugin, PluginProfiler.sourceName(this.run.getClass()));
+            }
+            return this.profilerEntry;
+        }
+
         @Override
         public Plugin getOwningPlugin() {
             return this.plugin;
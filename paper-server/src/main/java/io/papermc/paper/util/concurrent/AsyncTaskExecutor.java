@@ -0,0 +1,152 @@
+package io.papermc.paper.util.concurrent;
+
+import com.mojang.logging.LogUtils;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.bukkit.plugin.Plugin;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Runs asynchronous plugin work on a pool of platform threads or, if enabled in the global config, on a virtual
+ * thread per task.
+ * <p>
+ * Plugins commonly block on database or HTTP calls in asynchronous tasks. On platform threads every blocked task
+ * holds on to a thread of the operating system, and the unbounded pools grow by a thread for every task blocked at
+ * once. A virtual thread gives its carrier thread back while it blocks, so blocked tasks cost little more than
+ * their stack.
+ * </p>
+ * <p>
+ * While virtual threads are used, the tasks of a plugin running at once may be limited; further tasks of the
+ * plugin wait on their own virtual thread until one finishes. A virtual thread blocking inside a synchronized block
+ * or native code stays pinned to its carrier thread, which the carrier threads cannot make up for; pinning for
+ * longer than the configured threshold is recorded through JFR and logged once for every stack trace pinning.
+ * </p>
+ */
+@NullMarked
+public final class AsyncTaskExecutor implements Executor {
+
+    private static final Logger LOGGER = LogUtils.getClassLogger();
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    // the distinct stack traces logged for pinning at most, to not keep every one of a plugin pinning everywhere
+    private static final int MAX_LOGGED_PINNING = 256;
+    private static final Thread.UncaughtExceptionHandler UNCAUGHT_EXCEPTION_HANDLER = (thread, throwable) ->
+        LOGGER.error("Uncaught exception in thread: " + thread.getName(), throwable);
+
+    private static volatile boolean virtualThreads;
+    private static volatile int maxConcurrentTasksPerPlugin = -1;
+    private static volatile ConcurrentHashMap<String, Semaphore> pluginPermits = new ConcurrentHashMap<>();
+    private static final Set<String> loggedPinning = ConcurrentHashMap.newKeySet();
+    private static @Nullable RecordingStream pinnedThreadMonitor;
+
+    private final String name;
+    private final Executor platformExecutor;
+
+    /**
+     * @param name the name of the virtual threads, followed by the name of the plugin of their task if any
+     * @param platformExecutor the executor used while virtual threads are disabled
+     */
+    public AsyncTaskExecutor(final String name, final Executor platformExecutor) {
+        this.name = name;
+        this.platformExecutor = platformExecutor;
+    }
+
+    /**
+     * Configures all executors.
+     *
+     * @param virtualThreads whether tasks run on virtual threads
+     * @param maxConcurrentTasksPerPlugin the maximum tasks of a plugin running at once on virtual threads, or
+     *                                    {@code -1} if unlimited
+     * @param pinnedThreadLogThreshold the minimum time, in ms, of the pinning of virtual threads that is logged,
+     *                                 or {@code -1} if it is not logged
+     */
+    public static synchronized void configure(final boolean virtualThreads, final int maxConcurrentTasksPerPlugin, final int pinnedThreadLogThreshold) {
+        if (maxConcurrentTasksPerPlugin != AsyncTaskExecutor.maxConcurrentTasksPerPlugin) {
+            // running tasks release the permits they acquired from the previous limit
+            pluginPermits = new ConcurrentHashMap<>();
+            AsyncTaskExecutor.maxConcurrentTasksPerPlugin = maxConcurrentTasksPerPlugin;
+        }
+        AsyncTaskExecutor.virtualThreads = virtualThreads;
+
+        if (pinnedThreadMonitor != null) {
+            pinnedThreadMonitor.close();
+            pinnedThreadMonitor = null;
+        }
+        if (virtualThreads && pinnedThreadLogThreshold >= 0) {
+            try {
+                final RecordingStream stream = new RecordingStream();
+                stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(pinnedThreadLogThreshold)).withStackTrace();
+                stream.onEvent(PINNED_EVENT, AsyncTaskExecutor::logPinning);
+                stream.startAsync();
+                pinnedThreadMonitor = stream;
+            } catch (final Throwable throwable) {
+                LOGGER.warn("Failed to start recording the pinning of virtual threads", throwable);
+            }
+        }
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        this.execute(null, task);
+    }
+
+    /**
+     * Runs a task of the specified plugin, counting it towards the concurrency limit of the plugin if it runs on a
+     * virtual thread.
+     */
+    public void execute(final @Nullable Plugin plugin, final Runnable task) {
+        if (!virtualThreads) {
+            this.platformExecutor.execute(task);
+            return;
+        }
+
+        final Semaphore permits = plugin == null ? null : permits(plugin);
+        final Runnable run = permits == null ? task : () -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        };
+        Thread.ofVirtual()
+            .name(plugin == null ? this.name : this.name + " - " + plugin.getName())
+            .uncaughtExceptionHandler(UNCAUGHT_EXCEPTION_HANDLER)
+            .start(run);
+    }
+
+    private static @Nullable Semaphore permits(final Plugin plugin) {
+        final int max = maxConcurrentTasksPerPlugin;
+        if (max <= 0) {
+            return null;
+        }
+        return pluginPermits.computeIfAbsent(plugin.getName(), name -> new Semaphore(max));
+    }
+
+    private static void logPinning(final RecordedEvent event) {
+        final StringBuilder stackTrace = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            for (final RecordedFrame frame : event.getStackTrace().getFrames()) {
+                stackTrace.append("\n\tat ").append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName());
+                if (frame.getLineNumber() >= 0) {
+                    stackTrace.append(" (line ").append(frame.getLineNumber()).append(')');
+                }
+            }
+        }
+        final String trace = stackTrace.toString();
+        if (loggedPinning.size() >= MAX_LOGGED_PINNING || !loggedPinning.add(trace)) {
+            return;
+        }
+        final RecordedThread thread = event.getThread();
+        LOGGER.warn("Virtual thread {} was pinned to its carrier thread for {} ms, likely by blocking inside a synchronized block. Further pinning at the same place is not logged:{}",
+            thread == null ? "unknown" : thread.getJavaName(), event.getDuration().toMillis(), trace);
+    }
+}
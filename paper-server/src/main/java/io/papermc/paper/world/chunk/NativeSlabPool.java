@@ -0,0 +1,98 @@
+package io.papermc.paper.world.chunk;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Hands out blocks of native memory for {@link OffHeapBitStorage}, carved from large slabs.
+ * <p>
+ * Allocating every storage with {@link ByteBuffer#allocateDirect(int)} would leave freeing it to the garbage
+ * collector running the cleaner of the buffer, and once the direct memory limit is reached the JDK calls
+ * {@link System#gc()} to get memory back. Slabs are allocated rarely and kept for the lifetime of the server
+ * instead, and blocks released on chunk unload or on resize are reused for storage of the same size.
+ * </p>
+ * <p>
+ * Containers are read without locking, so a reader may still be reading a block that was just released. Released
+ * blocks are therefore only reused once they have been released for {@link #REUSE_DELAY}, much longer than any read
+ * of a container takes, and until then still hold the data of the storage they were released by.
+ * </p>
+ */
+@NullMarked
+final class NativeSlabPool {
+
+    static final NativeSlabPool INSTANCE = new NativeSlabPool(1 << 20);
+
+    static final long REUSE_DELAY = TimeUnit.SECONDS.toNanos(10L);
+
+    private final int slabSize;
+    private final Int2ObjectOpenHashMap<ArrayDeque<ByteBuffer>> free = new Int2ObjectOpenHashMap<>();
+    // in the order they were released in
+    private final ArrayDeque<ByteBuffer> released = new ArrayDeque<>();
+    private final LongArrayFIFOQueue releasedAt = new LongArrayFIFOQueue();
+    private @Nullable ByteBuffer slab;
+    private long reservedBytes;
+
+    NativeSlabPool(final int slabSize) {
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * Returns a block of native memory of the specified size, in native byte order. The contents of the block are
+     * undefined.
+     */
+    ByteBuffer allocate(final int bytes) {
+        return this.allocate(bytes, System.nanoTime());
+    }
+
+    synchronized ByteBuffer allocate(final int bytes, final long time) {
+        this.reclaim(time);
+        final ArrayDeque<ByteBuffer> free = this.free.get(bytes);
+        final ByteBuffer reused = free == null ? null : free.pollLast();
+        if (reused != null) {
+            return reused;
+        }
+
+        ByteBuffer slab = this.slab;
+        if (slab == null || slab.remaining() < bytes) {
+            // the rest of the current slab is left unused, it is smaller than the largest storage
+            this.slab = slab = ByteBuffer.allocateDirect(Math.max(this.slabSize, bytes));
+            this.reservedBytes += slab.capacity();
+        }
+        final ByteBuffer ret = slab.slice(slab.position(), bytes).order(ByteOrder.nativeOrder());
+        slab.position(slab.position() + bytes);
+        return ret;
+    }
+
+    /**
+     * Releases a block returned by {@link #allocate(int)}. The block must not be written to afterwards.
+     */
+    void release(final ByteBuffer block) {
+        this.release(block, System.nanoTime());
+    }
+
+    synchronized void release(final ByteBuffer block, final long time) {
+        this.released.add(block);
+        this.releasedAt.enqueue(time);
+    }
+
+    private void reclaim(final long time) {
+        while (!this.released.isEmpty() && time - this.releasedAt.firstLong() >= REUSE_DELAY) {
+            this.releasedAt.dequeueLong();
+            final ByteBuffer block = this.released.pollFirst();
+            this.free.computeIfAbsent(block.capacity(), size -> new ArrayDeque<>()).add(block);
+        }
+    }
+
+    /**
+     * Returns the native memory reserved for slabs, in bytes.
+     */
+    synchronized long getReservedBytes() {
+        return this.reservedBytes;
+    }
+}
@@ -0,0 +1,186 @@
+package io.papermc.paper.world.chunk;
+
+import java.nio.ByteBuffer;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.util.BitStorage;
+import net.minecraft.util.SimpleBitStorage;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * A {@link BitStorage} with the same packing as {@link SimpleBitStorage}, but with its cells stored in native
+ * memory instead of a heap {@code long[]}.
+ * <p>
+ * Loaded chunks hold their block state storage in this form when {@code chunk-system.off-heap-palette-storage}
+ * is enabled, which keeps the bulk of the chunk section data out of the old generation. The memory comes from the
+ * {@link NativeSlabPool} and is released explicitly when the container resizes or the chunk unloads, after which it
+ * is only reused once no reader can still be reading it.
+ * </p>
+ * <p>
+ * Copies are always made on-heap, so copying a container for saving or for a chunk snapshot never allocates
+ * native memory that the chunk would not free.
+ * </p>
+ */
+@NullMarked
+public final class OffHeapBitStorage implements BitStorage {
+
+    private final ByteBuffer data;
+    private final int bits;
+    private final long mask;
+    private final int size;
+    private final int valuesPerLong;
+    private final int rawLength;
+    private boolean released;
+
+    private OffHeapBitStorage(final int bits, final int size, final long[] raw) {
+        this.bits = bits;
+        this.mask = (1L << bits) - 1L;
+        this.size = size;
+        this.valuesPerLong = 64 / bits;
+        this.rawLength = raw.length;
+        final ByteBuffer data = NativeSlabPool.INSTANCE.allocate(raw.length * Long.BYTES);
+        for (int i = 0; i < raw.length; ++i) {
+            data.putLong(i * Long.BYTES, raw[i]);
+        }
+        this.data = data;
+    }
+
+    /**
+     * Copies the specified storage into native memory. Only {@link SimpleBitStorage} can be moved off-heap,
+     * any other storage has no backing array worth moving.
+     */
+    public static OffHeapBitStorage copyOf(final SimpleBitStorage storage) {
+        return new OffHeapBitStorage(storage.getBits(), storage.getSize(), storage.getRaw());
+    }
+
+    /**
+     * Moves the block state storage of every section of the chunk off-heap. Biome storage is left on-heap, as
+     * it is too small for native memory to be worth its per-allocation overhead.
+     */
+    public static void moveSectionsOffHeap(final ChunkAccess chunk) {
+        for (final LevelChunkSection section : chunk.getSections()) {
+            section.getStates().moveStorageOffHeap();
+        }
+    }
+
+    /**
+     * Moves the block state storage of every section of the chunk back on-heap and releases its native memory.
+     * Called when the chunk unloads, as the chunk may still be saved or read afterwards.
+     */
+    public static void releaseSections(final ChunkAccess chunk) {
+        for (final LevelChunkSection section : chunk.getSections()) {
+            section.getStates().releaseOffHeapStorage();
+        }
+    }
+
+    /**
+     * Returns the native memory of this storage to the pool. Only the container owning the storage may release
+     * it, once it no longer writes to it.
+     */
+    public void release() {
+        if (!this.released) {
+            this.released = true;
+            NativeSlabPool.INSTANCE.release(this.data);
+        }
+    }
+
+    private int cellOffset(final int index) {
+        return (index / this.valuesPerLong) * Long.BYTES;
+    }
+
+    private int bitOffset(final int index) {
+        return (index % this.valuesPerLong) * this.bits;
+    }
+
+    @Override
+    public int getAndSet(final int index, final int value) {
+        final ByteBuffer data = this.data;
+        final int cellOffset = this.cellOffset(index);
+        final int bitOffset = this.bitOffset(index);
+        final long cell = data.getLong(cellOffset);
+        data.putLong(cellOffset, cell & ~(this.mask << bitOffset) | ((long)value & this.mask) << bitOffset);
+        return (int)(cell >>> bitOffset & this.mask);
+    }
+
+    @Override
+    public void set(final int index, final int value) {
+        final ByteBuffer data = this.data;
+        final int cellOffset = this.cellOffset(index);
+        final int bitOffset = this.bitOffset(index);
+        final long cell = data.getLong(cellOffset);
+        data.putLong(cellOffset, cell & ~(this.mask << bitOffset) | ((long)value & this.mask) << bitOffset);
+    }
+
+    @Override
+    public int get(final int index) {
+        return (int)(this.data.getLong(this.cellOffset(index)) >>> this.bitOffset(index) & this.mask);
+    }
+
+    /**
+     * Returns a heap copy of the packed cells. Writes to the returned array are not reflected in this storage, so
+     * callers reading into or writing out the storage use {@link #read(FriendlyByteBuf)} and
+     * {@link #write(FriendlyByteBuf)} instead.
+     */
+    @Override
+    public long[] getRaw() {
+        final long[] ret = new long[this.rawLength];
+        this.data.asLongBuffer().get(ret);
+        return ret;
+    }
+
+    /**
+     * Returns the length of the array {@link #getRaw()} would return, without copying it.
+     */
+    public int getRawLength() {
+        return this.rawLength;
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public int getBits() {
+        return this.bits;
+    }
+
+    @Override
+    public void unpack(final int[] array) {
+        final ByteBuffer data = this.data;
+        int index = 0;
+        for (int i = 0; i < this.rawLength; ++i) {
+            long cell = data.getLong(i * Long.BYTES);
+            for (int j = 0; j < this.valuesPerLong && index < this.size; ++j) {
+                array[index++] = (int)(cell & this.mask);
+                cell >>>= this.bits;
+            }
+        }
+    }
+
+    @Override
+    public BitStorage copy() {
+        return new SimpleBitStorage(this.bits, this.size, this.getRaw());
+    }
+
+    /**
+     * Writes the packed cells to the buffer, in the same format as {@link FriendlyByteBuf#writeFixedSizeLongArray(long[])}.
+     */
+    public void write(final FriendlyByteBuf buffer) {
+        final ByteBuffer data = this.data;
+        for (int i = 0; i < this.rawLength; ++i) {
+            buffer.writeLong(data.getLong(i * Long.BYTES));
+        }
+    }
+
+    /**
+     * Reads the packed cells from the buffer, in the same format as {@link FriendlyByteBuf#readFixedSizeLongArray(long[])}.
+     */
+    public void read(final FriendlyByteBuf buffer) {
+        final ByteBuffer data = this.data;
+        for (int i = 0; i < this.rawLength; ++i) {
+            data.putLong(i * Long.BYTES, buffer.readLong());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.papermc.paper.world.chunk;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.chunk.PalettedContainerRO;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reuses the encoded {@code block_states} and {@code biomes} tags of chunk sections that have not changed since
+ * they were last saved, if enabled in the global config.
+ * <p>
+ * Each {@link PalettedContainer} counts its modifications and drops its cached tag on the first modification after
+ * a save, so only the tags of unchanged containers are kept. The modification count of the live section is
+ * captured on the main thread when the chunk is copied for saving; the tags encoded from the copy are attached to
+ * the live containers once the save has been serialized off-thread, unless the container was modified in the
+ * meantime.
+ * </p>
+ * <p>
+ * Cached tags are never handed out, only copies of them, as the tags of a save may be modified before they are
+ * written.
+ * </p>
+ */
+@NullMarked
+public final class SectionEncoding {
+
+    public static final String BLOCK_STATES_TAG = "block_states";
+    public static final String BIOMES_TAG = "biomes";
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PalettedContainer, Entry> ENCODED_CACHE =
+        AtomicReferenceFieldUpdater.newUpdater(PalettedContainer.class, Entry.class, "encodedCache");
+
+    /**
+     * The tag a container was last encoded to, or {@code null} while its encoding is pending, and the modification
+     * count of the container it was encoded from.
+     */
+    public record Entry(int modificationCount, @Nullable Tag encoded) {}
+
+    private final PalettedContainer<?> states;
+    private final @Nullable Entry pendingStates;
+    private final @Nullable PalettedContainer<?> biomes;
+    private final @Nullable Entry pendingBiomes;
+    private final @Nullable Tag cachedStates;
+    private final @Nullable Tag cachedBiomes;
+
+    private SectionEncoding(final PalettedContainer<?> states, final @Nullable PalettedContainer<?> biomes) {
+        this.states = states;
+        this.cachedStates = cached(states);
+        this.pendingStates = this.cachedStates == null ? pending(states) : null;
+        this.biomes = biomes;
+        this.cachedBiomes = biomes == null ? null : cached(biomes);
+        this.pendingBiomes = biomes == null || this.cachedBiomes != null ? null : pending(biomes);
+    }
+
+    /**
+     * Captures the current state of the live section. Must be called on the thread owning the section.
+     */
+    public static SectionEncoding capture(final LevelChunkSection section) {
+        final PalettedContainerRO<?> biomes = section.getBiomes();
+        return new SectionEncoding(section.getStates(), biomes instanceof PalettedContainer<?> container ? container : null);
+    }
+
+    private static @Nullable Tag cached(final PalettedContainer<?> container) {
+        final Entry entry = container.encodedCache;
+        return entry != null && entry.modificationCount() == container.modificationCount ? entry.encoded() : null;
+    }
+
+    private static Entry pending(final PalettedContainer<?> container) {
+        final Entry pending = new Entry(container.modificationCount, null);
+        container.encodedCache = pending;
+        return pending;
+    }
+
+    /**
+     * Returns whether both containers of the section are unchanged since they were last encoded, in which case
+     * the section does not need to be copied or encoded again.
+     */
+    public boolean isCached() {
+        return this.cachedStates != null && this.cachedBiomes != null;
+    }
+
+    /**
+     * Writes copies of the cached tags of the section. Only valid if {@link #isCached()} returns {@code true}.
+     */
+    public void writeCached(final CompoundTag sectionTag) {
+        sectionTag.put(BLOCK_STATES_TAG, this.cachedStates.copy());
+        sectionTag.put(BIOMES_TAG, this.cachedBiomes.copy());
+    }
+
+    /**
+     * Remembers copies of the tags the section was encoded to for the next save of the section, for the containers
+     * not modified since the section was captured.
+     */
+    public void cache(final CompoundTag sectionTag) {
+        final Tag encodedStates = sectionTag.get(BLOCK_STATES_TAG);
+        if (this.pendingStates != null && encodedStates != null) {
+            ENCODED_CACHE.compareAndSet(this.states, this.pendingStates, new Entry(this.pendingStates.modificationCount(), encodedStates.copy()));
+        }
+        final Tag encodedBiomes = sectionTag.get(BIOMES_TAG);
+        if (this.biomes != null && this.pendingBiomes != null && encodedBiomes != null) {
+            ENCODED_CACHE.compareAndSet(this.biomes, this.pendingBiomes, new Entry(this.pendingBiomes.modificationCount(), encodedBiomes.copy()));
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package io.papermc.paper.world.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32C;
+import net.minecraft.world.level.ChunkPos;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * An append-only log of serialized chunk payloads for a single region file folder.
+ * <p>
+ * Writes are appended sequentially to the current log segment, and the position of the latest record of every chunk
+ * is indexed in memory, so that reads can be served from the log until its records are folded into the region files. Once the current segment reaches the compaction
+ * threshold, it is sealed and a background compaction folds the latest record of every logged chunk into the region
+ * files, after which the sealed segments are deleted. Records written while a compaction runs go to the new segment
+ * and are folded by the next compaction.
+ * </p>
+ * <p>
+ * Each record is checksummed. When the log is opened, the segments left behind by a previous run are replayed in
+ * order up to the first torn or corrupt record, and folded into the region files before the log is used.
+ * </p>
+ */
+@NullMarked
+public final class ChunkWriteAheadLog {
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    private static final int SEGMENT_MAGIC = 0x5057414C; // PWAL
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final String SEGMENT_EXTENSION = ".log";
+    // chunk x, chunk z, payload length
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final int RECORD_CHECKSUM_SIZE = 4;
+    private static final int DELETE_LENGTH = -1;
+
+    // compaction is bound by disk IO, so one thread is shared by every log
+    private static final ExecutorService COMPACTION_EXECUTOR = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("Paper Chunk Log Compactor")
+            .setDaemon(true)
+            .setUncaughtExceptionHandler((thread, thr) -> LOGGER.error("Uncaught exception in thread {}", thread.getName(), thr))
+            .build()
+    );
+
+    /**
+     * Folds the records of a single region into the region files. The records must be durable once this method
+     * returns, as their log segments are deleted afterwards.
+     */
+    @FunctionalInterface
+    public interface Compactor {
+
+        void fold(List<Record> records) throws IOException;
+    }
+
+    /**
+     * A logged chunk. A {@code null} payload means the chunk was deleted.
+     */
+    public record Record(int chunkX, int chunkZ, byte @Nullable [] payload) {}
+
+    // the position of a logged payload, or of a deletion if the length is DELETE_LENGTH
+    private record Entry(int chunkX, int chunkZ, long segmentId, long offset, int length) {}
+
+    private final Path directory;
+    private final boolean sync;
+    private final long compactionThreshold;
+    private final Compactor compactor;
+    private final Object compactionLock = new Object();
+
+    // all fields below are guarded by this
+    private final Long2ObjectOpenHashMap<Entry> index = new Long2ObjectOpenHashMap<>();
+    // region key -> number of indexed chunks in the region
+    private final Long2IntOpenHashMap regionEntries = new Long2IntOpenHashMap();
+    // segment id -> channel reading the segment, closed once the segment is deleted
+    private final Long2ObjectOpenHashMap<FileChannel> readChannels = new Long2ObjectOpenHashMap<>();
+    private FileChannel segment;
+    private long segmentId;
+    private long segmentSize;
+    private boolean compactionQueued;
+    private boolean closed;
+
+    private ChunkWriteAheadLog(final Path directory, final boolean sync, final long compactionThreshold, final Compactor compactor) {
+        this.directory = directory;
+        this.sync = sync;
+        this.compactionThreshold = compactionThreshold;
+        this.compactor = compactor;
+    }
+
+    public static Path getDirectory(final Path regionFolder) {
+        return regionFolder.resolveSibling(regionFolder.getFileName() + "_wal");
+    }
+
+    /**
+     * Opens the log stored in the specified directory, replaying and folding any segments left behind by a previous run.
+     */
+    public static ChunkWriteAheadLog open(final Path directory, final boolean sync, final long compactionThreshold, final Compactor compactor) throws IOException {
+        final ChunkWriteAheadLog ret = new ChunkWriteAheadLog(directory, sync, compactionThreshold, compactor);
+        Files.createDirectories(directory);
+
+        final List<Long> segments = listSegments(directory);
+        for (final long segmentId : segments) {
+            ret.replay(segmentId);
+        }
+        final long lastSegment = segments.isEmpty() ? 0L : segments.get(segments.size() - 1);
+        synchronized (ret) {
+            ret.openSegment(lastSegment + 1L);
+        }
+
+        if (!segments.isEmpty()) {
+            LOGGER.info("Recovered {} chunks from the write-ahead log in {}", ret.index.size(), directory);
+            ret.compact();
+        }
+
+        return ret;
+    }
+
+    private static List<Long> listSegments(final Path directory) throws IOException {
+        final List<Long> ret = new ArrayList<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_EXTENSION)) {
+            for (final Path file : stream) {
+                final String name = file.getFileName().toString();
+                try {
+                    ret.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length())));
+                } catch (final NumberFormatException ex) {
+                    LOGGER.warn("Ignoring unknown file {} in write-ahead log directory", file);
+                }
+            }
+        }
+        ret.sort(null);
+        return ret;
+    }
+
+    private Path getSegmentPath(final long segmentId) {
+        return this.directory.resolve(segmentId + SEGMENT_EXTENSION);
+    }
+
+    private static long regionKey(final int chunkX, final int chunkZ) {
+        return ChunkPos.asLong(chunkX >> 5, chunkZ >> 5);
+    }
+
+    private void replay(final long segmentId) throws IOException {
+        final Path path = this.getSegmentPath(segmentId);
+        final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < SEGMENT_HEADER_SIZE || data.getInt() != SEGMENT_MAGIC || data.getInt() != SEGMENT_VERSION) {
+            LOGGER.warn("Ignoring write-ahead log segment {} with an invalid header", path);
+            return;
+        }
+
+        final CRC32C checksum = new CRC32C();
+        while (data.hasRemaining()) {
+            final int start = data.position();
+            if (data.remaining() < RECORD_HEADER_SIZE) {
+                LOGGER.warn("Write-ahead log segment {} ends with a torn record at offset {}, discarding it", path, start);
+                return;
+            }
+            final int chunkX = data.getInt();
+            final int chunkZ = data.getInt();
+            final int length = data.getInt();
+            final int payloadLength = length == DELETE_LENGTH ? 0 : length;
+            if (payloadLength < 0 || data.remaining() < payloadLength + RECORD_CHECKSUM_SIZE) {
+                LOGGER.warn("Write-ahead log segment {} ends with a torn record at offset {}, discarding it", path, start);
+                return;
+            }
+
+            checksum.reset();
+            checksum.update(data.array(), start, RECORD_HEADER_SIZE + payloadLength);
+            data.position(data.position() + payloadLength);
+            if (data.getInt() != (int)checksum.getValue()) {
+                LOGGER.warn("Write-ahead log segment {} has a corrupt record at offset {}, discarding the rest of the segment", path, start);
+                return;
+            }
+
+            synchronized (this) {
+                this.index(new Entry(chunkX, chunkZ, segmentId, start + RECORD_HEADER_SIZE, length));
+            }
+        }
+    }
+
+    // must hold lock on this object
+    private void index(final Entry entry) {
+        if (this.index.put(ChunkPos.asLong(entry.chunkX(), entry.chunkZ()), entry) == null) {
+            this.regionEntries.addTo(regionKey(entry.chunkX(), entry.chunkZ()), 1);
+        }
+    }
+
+    // must hold lock on this object
+    private FileChannel getReadChannel(final long segmentId) throws IOException {
+        FileChannel channel = this.readChannels.get(segmentId);
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(this.getSegmentPath(segmentId), StandardOpenOption.READ);
+            this.readChannels.put(segmentId, channel);
+        }
+        return channel;
+    }
+
+    // must hold lock on this object
+    private void deleteSegment(final long segmentId) throws IOException {
+        final FileChannel channel = this.readChannels.remove(segmentId);
+        if (channel != null) {
+            channel.close();
+        }
+        Files.deleteIfExists(this.getSegmentPath(segmentId));
+    }
+
+    private static Record readRecord(final Entry entry, final @Nullable FileChannel channel) throws IOException {
+        if (channel == null) {
+            return new Record(entry.chunkX(), entry.chunkZ(), null);
+        }
+        final ByteBuffer payload = ByteBuffer.allocate(entry.length());
+        while (payload.hasRemaining()) {
+            if (channel.read(payload, entry.offset() + payload.position()) < 0) {
+                throw new IOException("Write-ahead log record of chunk (" + entry.chunkX() + ", " + entry.chunkZ() + ") is truncated");
+            }
+        }
+        return new Record(entry.chunkX(), entry.chunkZ(), payload.array());
+    }
+
+    // must hold lock on this object
+    private void openSegment(final long segmentId) throws IOException {
+        final FileChannel channel = FileChannel.open(this.getSegmentPath(segmentId), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION).flip();
+            writeFully(channel, header);
+        } catch (final IOException ex) {
+            channel.close();
+            throw ex;
+        }
+
+        final FileChannel previous = this.segment;
+        this.segment = channel;
+        this.segmentId = segmentId;
+        this.segmentSize = SEGMENT_HEADER_SIZE;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * Appends the payload for the specified chunk to the log, or a deletion if the payload is {@code null}.
+     */
+    public void write(final int chunkX, final int chunkZ, final byte @Nullable [] payload) throws IOException {
+        final int payloadLength = payload == null ? 0 : payload.length;
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadLength + RECORD_CHECKSUM_SIZE);
+        record.putInt(chunkX).putInt(chunkZ).putInt(payload == null ? DELETE_LENGTH : payload.length);
+        if (payload != null) {
+            record.put(payload);
+        }
+        final CRC32C checksum = new CRC32C();
+        checksum.update(record.array(), 0, record.position());
+        record.putInt((int)checksum.getValue()).flip();
+
+        final boolean compact;
+        synchronized (this) {
+            if (this.closed) {
+                throw new IOException("Write-ahead log " + this.directory + " is closed");
+            }
+            writeFully(this.segment, record);
+            if (this.sync) {
+                this.segment.force(false);
+            }
+            this.index(new Entry(chunkX, chunkZ, this.segmentId, this.segmentSize + RECORD_HEADER_SIZE, payload == null ? DELETE_LENGTH : payload.length));
+            this.segmentSize += record.limit();
+
+            compact = !this.compactionQueued && this.segmentSize >= this.compactionThreshold;
+            if (compact) {
+                this.compactionQueued = true;
+            }
+        }
+
+        if (compact) {
+            COMPACTION_EXECUTOR.execute(() -> {
+                try {
+                    this.compact();
+                } catch (final Throwable thr) {
+                    LOGGER.error("Failed to compact write-ahead log {}, it will be retried on the next compaction", this.directory, thr);
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the latest logged record for the specified chunk, or returns {@code null} if the chunk is not in the log.
+     */
+    public @Nullable Record read(final int chunkX, final int chunkZ) throws IOException {
+        while (true) {
+            final Entry entry;
+            final FileChannel channel;
+            synchronized (this) {
+                entry = this.index.get(ChunkPos.asLong(chunkX, chunkZ));
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.length() == DELETE_LENGTH) {
+                    return new Record(chunkX, chunkZ, null);
+                }
+                channel = this.getReadChannel(entry.segmentId());
+            }
+
+            try {
+                return readRecord(entry, channel);
+            } catch (final ClosedByInterruptException ex) {
+                throw ex;
+            } catch (final ClosedChannelException ex) {
+                // the segment was folded and deleted while reading, the chunk is now in the region file or logged again
+            }
+        }
+    }
+
+    /**
+     * Returns whether the log holds any record for a chunk in the region containing the specified chunk.
+     */
+    public synchronized boolean hasRegion(final int chunkX, final int chunkZ) {
+        return this.regionEntries.get(regionKey(chunkX, chunkZ)) != 0;
+    }
+
+    /**
+     * Folds every record currently in the log into the region files, and deletes the folded segments.
+     */
+    public void compact() throws IOException {
+        synchronized (this.compactionLock) {
+            final long sealedSegment;
+            final List<Entry> entries;
+            synchronized (this) {
+                this.compactionQueued = false;
+                if (this.index.isEmpty()) {
+                    return;
+                }
+
+                sealedSegment = this.segmentId;
+                if (!this.closed) {
+                    this.openSegment(sealedSegment + 1L);
+                }
+                entries = new ArrayList<>(this.index.values());
+            }
+
+            // fold region by region, so that only the payloads of one region are in memory at once
+            entries.sort(Comparator.comparingLong((final Entry entry) -> regionKey(entry.chunkX(), entry.chunkZ())));
+            final List<Record> records = new ArrayList<>();
+            for (int i = 0, len = entries.size(); i < len; ++i) {
+                final Entry entry = entries.get(i);
+                final FileChannel channel;
+                synchronized (this) {
+                    channel = entry.length() == DELETE_LENGTH ? null : this.getReadChannel(entry.segmentId());
+                }
+                records.add(readRecord(entry, channel));
+
+                if (i + 1 == len || regionKey(entry.chunkX(), entry.chunkZ()) != regionKey(entries.get(i + 1).chunkX(), entries.get(i + 1).chunkZ())) {
+                    this.compactor.fold(records);
+                    records.clear();
+                }
+            }
+
+            synchronized (this) {
+                for (final Entry entry : entries) {
+                    // only remove the entry if it was not superseded while folding
+                    if (this.index.remove(ChunkPos.asLong(entry.chunkX(), entry.chunkZ()), entry)
+                        && this.regionEntries.addTo(regionKey(entry.chunkX(), entry.chunkZ()), -1) == 1) {
+                        this.regionEntries.remove(regionKey(entry.chunkX(), entry.chunkZ()));
+                    }
+                }
+
+                for (final long segmentId : listSegments(this.directory)) {
+                    if (segmentId <= sealedSegment && segmentId != this.getCurrentSegmentId()) {
+                        this.deleteSegment(segmentId);
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized long getCurrentSegmentId() {
+        return this.closed ? -1L : this.segmentId;
+    }
+
+    /**
+     * Folds the log into the region files and closes it. The log directory is removed if the log is empty.
+     */
+    public void close() throws IOException {
+        synchronized (this.compactionLock) {
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                this.segment.close();
+            }
+
+            try {
+                this.compact();
+
+                synchronized (this) {
+                    if (!this.index.isEmpty()) {
+                        // folding failed or raced with a write, keep the segments for the next start to replay
+                        return;
+                    }
+                    for (final long segmentId : listSegments(this.directory)) {
+                        this.deleteSegment(segmentId);
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    for (final FileChannel channel : this.readChannels.values()) {
+                        channel.close();
+                    }
+                    this.readChannels.clear();
+                }
+            }
+            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+                if (!stream.iterator().hasNext()) {
+                    Files.delete(this.directory);
+                }
+            }
+        }
+    }
+}
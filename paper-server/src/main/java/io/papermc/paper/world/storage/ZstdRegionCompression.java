@@ -0,0 +1,240 @@
+package io.papermc.paper.world.storage;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import com.mojang.logging.LogUtils;
+import io.papermc.paper.util.AtomicFiles;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Zstandard region file compression, optionally using a dictionary trained from a world's own chunk data.
+ * <p>
+ * Dictionaries are stored per dimension in a {@value #DICTIONARY_FOLDER} folder next to the {@code region},
+ * {@code entities} and {@code poi} folders. They are trained from chunk data only, so only chunk region files are
+ * compressed with them; entity and poi data have little in common with chunk data, and are compressed without a
+ * dictionary. Every dictionary ever trained for a dimension is kept, as chunks
+ * compressed with an older dictionary still need it to be decompressed; the {@value #ACTIVE_FILE} file holds
+ * the id of the dictionary used for new writes. The dictionary id is recorded in each zstd frame header, so
+ * decompression looks the dictionary up from the frame itself.
+ * </p>
+ * <p>
+ * Zstd compressed chunks are stored with the compression id {@value #VERSION_ID}, which is specific to Paper.
+ * Region files containing them cannot be read by vanilla or by server software without this format, and remain
+ * unreadable to them after switching to another format until every chunk has been rewritten, for example with
+ * {@code --forceUpgrade --recreateRegionFiles}.
+ * </p>
+ */
+@NullMarked
+public final class ZstdRegionCompression {
+
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    public static final int VERSION_ID = 53;
+    public static final String DICTIONARY_FOLDER = "zstd-dictionaries";
+    public static final String ACTIVE_FILE = "active";
+    private static final String DICTIONARY_EXTENSION = ".zdict";
+    private static final String CHUNK_REGION_FOLDER = "region";
+
+    public static final int DEFAULT_DICTIONARY_SIZE = 112 * 1024;
+    // zstd recommends roughly 100 times the dictionary size worth of samples
+    public static final int MAX_SAMPLE_BYTES = 100 * DEFAULT_DICTIONARY_SIZE;
+    // the largest frame header is 18 bytes, the dictionary id is always contained within it
+    private static final int MAX_FRAME_HEADER_SIZE = 18;
+
+    // dictionary ids are derived from a hash of the trained dictionary, so they are unique enough to share across dimensions
+    private static final Map<Long, ZstdDictDecompress> DECOMPRESS_DICTIONARIES = new ConcurrentHashMap<>();
+    private static final Map<Path, Dictionaries> DIMENSIONS = new ConcurrentHashMap<>();
+    private static final Dictionaries NO_DICTIONARY = new Dictionaries();
+
+    private ZstdRegionCompression() {
+    }
+
+    /**
+     * The dictionary the region files of a folder are compressed with. Resolved once per region folder by
+     * {@link #loadDictionaries(Path)}, and updated in place when a new dictionary is installed.
+     */
+    public static final class Dictionaries {
+
+        private volatile @Nullable ZstdDictCompress active;
+        private volatile long activeId;
+
+        private Dictionaries() {
+        }
+    }
+
+    private static boolean usesDictionary(final Path regionFolder) {
+        final Path name = regionFolder.getFileName();
+        return name != null && name.toString().equals(CHUNK_REGION_FOLDER);
+    }
+
+    private static Path dimensionFolder(final Path regionFolder) {
+        final Path absolute = regionFolder.toAbsolutePath().normalize();
+        final Path parent = absolute.getParent();
+        return parent == null ? absolute : parent;
+    }
+
+    private static Dictionaries dimension(final Path regionFolder) {
+        return DIMENSIONS.computeIfAbsent(dimensionFolder(regionFolder), ZstdRegionCompression::readDictionaries);
+    }
+
+    /**
+     * Loads every dictionary stored for the dimension owning the specified region folder, if not already loaded,
+     * so that the chunks of the folder can be decompressed.
+     *
+     * @return the dictionaries to pass to {@link #wrapOutput(OutputStream, Dictionaries)} when compressing the
+     *         region files of the folder
+     */
+    public static Dictionaries loadDictionaries(final Path regionFolder) {
+        final Dictionaries dimension = dimension(regionFolder);
+        return usesDictionary(regionFolder) ? dimension : NO_DICTIONARY;
+    }
+
+    private static Dictionaries readDictionaries(final Path dimensionFolder) {
+        final Dictionaries ret = new Dictionaries();
+        final Path folder = dimensionFolder.resolve(DICTIONARY_FOLDER);
+        if (!Files.isDirectory(folder)) {
+            return ret;
+        }
+
+        final Map<Long, byte[]> dictionaries = new HashMap<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + DICTIONARY_EXTENSION)) {
+            for (final Path file : stream) {
+                final byte[] dictionary = Files.readAllBytes(file);
+                final long id = Zstd.getDictIdFromDict(dictionary);
+                if (id == 0L) {
+                    LOGGER.warn("Ignoring zstd dictionary {} as it is not a valid dictionary", file);
+                    continue;
+                }
+                dictionaries.put(id, dictionary);
+                DECOMPRESS_DICTIONARIES.computeIfAbsent(id, key -> new ZstdDictDecompress(dictionary));
+            }
+
+            final Path activeFile = folder.resolve(ACTIVE_FILE);
+            if (Files.isRegularFile(activeFile)) {
+                final long activeId = Long.parseUnsignedLong(Files.readString(activeFile, StandardCharsets.UTF_8).trim());
+                final byte[] active = dictionaries.get(activeId);
+                if (active == null) {
+                    LOGGER.error("Active zstd dictionary {} for {} is missing, chunks will be compressed without a dictionary", activeId, dimensionFolder);
+                } else {
+                    ret.active = new ZstdDictCompress(active, Zstd.defaultCompressionLevel());
+                    ret.activeId = activeId;
+                }
+            }
+        } catch (final IOException | NumberFormatException ex) {
+            LOGGER.error("Failed to load zstd dictionaries for {}", dimensionFolder, ex);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Trains a dictionary from uncompressed chunk data samples. Sampling stops once {@link #MAX_SAMPLE_BYTES}
+     * bytes of samples have been collected.
+     *
+     * @return the trained dictionary, or {@code null} if no samples were provided
+     */
+    public static byte @Nullable [] trainDictionary(final Iterator<byte[]> samples) {
+        final ZstdDictTrainer trainer = new ZstdDictTrainer(MAX_SAMPLE_BYTES, DEFAULT_DICTIONARY_SIZE);
+        boolean any = false;
+        while (samples.hasNext()) {
+            if (!trainer.addSample(samples.next())) {
+                break;
+            }
+            any = true;
+        }
+        return any ? trainer.trainSamples() : null;
+    }
+
+    /**
+     * Stores the specified dictionary for the dimension owning the specified region folder, and makes it the
+     * dictionary used for all new writes to that dimension.
+     *
+     * @return the id of the dictionary
+     */
+    public static long installDictionary(final Path regionFolder, final byte[] dictionary) throws IOException {
+        final long id = Zstd.getDictIdFromDict(dictionary);
+        if (id == 0L) {
+            throw new IOException("Not a valid zstd dictionary");
+        }
+
+        final Dictionaries dictionaries = dimension(regionFolder);
+        final Path folder = dimensionFolder(regionFolder).resolve(DICTIONARY_FOLDER);
+        Files.createDirectories(folder);
+        AtomicFiles.atomicWrite(folder.resolve(Long.toUnsignedString(id) + DICTIONARY_EXTENSION), temp -> Files.write(temp, dictionary));
+        AtomicFiles.atomicWrite(folder.resolve(ACTIVE_FILE), temp -> Files.writeString(temp, Long.toUnsignedString(id), StandardCharsets.UTF_8));
+
+        // the decompression dictionary must be visible before any chunk is written with it
+        DECOMPRESS_DICTIONARIES.computeIfAbsent(id, key -> new ZstdDictDecompress(dictionary));
+        dictionaries.active = new ZstdDictCompress(dictionary, Zstd.defaultCompressionLevel());
+        dictionaries.activeId = id;
+
+        return id;
+    }
+
+    /**
+     * Returns the id of the dictionary used for new writes to the dimension owning the specified region folder,
+     * or {@code 0} if chunks are compressed without a dictionary.
+     */
+    public static long getActiveDictionaryId(final Path regionFolder) {
+        return dimension(regionFolder).activeId;
+    }
+
+    public static InputStream wrapInput(final InputStream input) throws IOException {
+        final InputStream buffered = input.markSupported() ? input : new BufferedInputStream(input);
+        buffered.mark(MAX_FRAME_HEADER_SIZE);
+        final byte[] header = buffered.readNBytes(MAX_FRAME_HEADER_SIZE);
+        buffered.reset();
+
+        final ZstdInputStreamNoFinalizer ret = new ZstdInputStreamNoFinalizer(buffered, RecyclingBufferPool.INSTANCE);
+        final long dictionaryId = Zstd.getDictIdFromFrame(header);
+        if (dictionaryId != 0L) {
+            final ZstdDictDecompress dictionary = DECOMPRESS_DICTIONARIES.get(dictionaryId);
+            if (dictionary == null) {
+                ret.close();
+                throw new IOException("Chunk data was compressed with unknown zstd dictionary " + Long.toUnsignedString(dictionaryId));
+            }
+            ret.setDict(dictionary);
+        }
+        return ret;
+    }
+
+    public static OutputStream wrapOutput(final OutputStream output) throws IOException {
+        return wrapOutput(output, NO_DICTIONARY);
+    }
+
+    /**
+     * Wraps the output stream with a zstd compressor, using the active dictionary of the specified dictionaries
+     * if there is one.
+     *
+     * @param dictionaries the dictionaries returned by {@link #loadDictionaries(Path)} for the region folder written to
+     */
+    public static OutputStream wrapOutput(final OutputStream output, final Dictionaries dictionaries) throws IOException {
+        final ZstdOutputStreamNoFinalizer ret = new ZstdOutputStreamNoFinalizer(output, RecyclingBufferPool.INSTANCE);
+        ret.setLevel(Zstd.defaultCompressionLevel());
+        final ZstdDictCompress dictionary = dictionaries.active;
+        if (dictionary != null) {
+            ret.setDict(dictionary);
+        }
+        return new BufferedOutputStream(ret);
+    }
+}
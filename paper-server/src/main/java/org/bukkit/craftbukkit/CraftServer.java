@@ -2924,6 +2924,14 @@ public final class CraftServer implements Server {
         return this.getServer().tickTimes5s.getAverage();
     }
 
+    // Paper start - network statistics
+    @Override
+    public io.papermc.paper.connection.NetworkStatistics getNetworkStatistics() {
+        // the player list is only safe to copy on the main thread
+        return io.papermc.paper.network.PaperNetworkStatistics.aggregate(io.papermc.paper.util.MCUtil.ensureMain(() -> new java.util.ArrayList<>(this.playerList.players)));
+    }
+    // Paper end - network statistics
+
     private final org.bukkit.Server.Spigot spigot = new org.bukkit.Server.Spigot() {
 
         @Deprecated
@@ -3,7 +3,6 @@ package org.bukkit.craftbukkit;
 import ca.spottedleaf.moonrise.common.list.ReferenceList;
 import ca.spottedleaf.moonrise.common.util.CoordinateUtils;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Predicates;
 import com.mojang.datafixers.util.Pair;
 import io.papermc.paper.FeatureHooks;
 import io.papermc.paper.raytracing.RayTraceTarget;
@@ -1090,17 +1089,25 @@ public class CraftWorld extends CraftRegionAccessor implements World {
         Preconditions.checkArgument(boundingBox != null, "BoundingBox cannot be null");
 
         AABB bb = new AABB(boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMinZ(), boundingBox.getMaxX(), boundingBox.getMaxY(), boundingBox.getMaxZ());
-        List<net.minecraft.world.entity.Entity> entityList = this.getHandle().getEntities((net.minecraft.world.entity.Entity) null, bb, Predicates.alwaysTrue());
-        List<Entity> bukkitEntityList = new ArrayList<org.bukkit.entity.Entity>(entityList.size());
-
-        for (net.minecraft.world.entity.Entity entity : entityList) {
-            Entity bukkitEntity = entity.getBukkitEntity();
-            if (filter == null || filter.test(bukkitEntity)) {
-                bukkitEntityList.add(bukkitEntity);
+        // Paper start - allocation-free entity lookup
+        final List<net.minecraft.world.entity.Entity> entityList = ca.spottedleaf.moonrise.patches.chunk_system.level.entity.EntityLookup.acquireScratchList();
+        try {
+            this.world.moonrise$getEntityLookup().getEntities((net.minecraft.world.entity.Entity) null, bb, entityList, null);
+            ca.spottedleaf.moonrise.common.PlatformHooks.get().addToGetEntities(this.world, null, bb, null, entityList);
+            List<Entity> bukkitEntityList = new ArrayList<org.bukkit.entity.Entity>(entityList.size());
+
+            for (net.minecraft.world.entity.Entity entity : entityList) {
+                Entity bukkitEntity = entity.getBukkitEntity();
+                if (filter == null || filter.test(bukkitEntity)) {
+                    bukkitEntityList.add(bukkitEntity);
+                }
             }
-        }
 
-        return bukkitEntityList;
+            return bukkitEntityList;
+        } finally {
+            ca.spottedleaf.moonrise.patches.chunk_system.level.entity.EntityLookup.releaseScratchList(entityList);
+        }
+        // Paper end - allocation-free entity lookup
     }
 
     @Override
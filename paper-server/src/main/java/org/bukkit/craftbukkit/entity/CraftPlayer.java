@@ -2944,6 +2944,14 @@ public class CraftPlayer extends CraftHumanEntity implements Player, PluginMessa
         return this.getHandle().connection.latency();
     }
 
+    // Paper start - network statistics
+    @Override
+    public io.papermc.paper.connection.NetworkStatistics getNetworkStatistics() {
+        if (this.getHandle().connection == null) throw new UnsupportedOperationException("Too early to call this method at this stage");
+        return io.papermc.paper.network.PaperNetworkStatistics.of(this.getHandle().connection);
+    }
+    // Paper end - network statistics
+
     @Override
     public String getLocale() {
         // Paper start - Locale change event
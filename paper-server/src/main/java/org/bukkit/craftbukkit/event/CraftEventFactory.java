@@ -720,6 +720,7 @@ public class CraftEventFactory {
     }
 
     public static boolean callItemMergeEvent(ItemEntity merging, ItemEntity mergingWith) {
+        if (!ItemMergeEvent.getHandlerList().hasRegisteredListeners()) return true; // Paper - skip unheard events
         org.bukkit.entity.Item entityMerging = (org.bukkit.entity.Item) merging.getBukkitEntity();
         org.bukkit.entity.Item entityMergingWith = (org.bukkit.entity.Item) mergingWith.getBukkitEntity();
 
@@ -1231,6 +1232,7 @@ public class CraftEventFactory {
     }
 
     public static boolean callEntityChangeBlockEvent(Entity entity, BlockPos pos, net.minecraft.world.level.block.state.BlockState newState, boolean cancelled) {
+        if (!EntityChangeBlockEvent.getHandlerList().hasRegisteredListeners()) return !cancelled; // Paper - skip unheard events
         Block block = CraftBlock.at(entity.level(), pos);
 
         EntityChangeBlockEvent event = new EntityChangeBlockEvent(entity.getBukkitEntity(), block, CraftBlockData.fromData(newState));
@@ -1402,6 +1404,20 @@ public class CraftEventFactory {
         return event;
     }
 
+    // Paper start - skip unheard events
+    /**
+     * Calls the {@link BlockRedstoneEvent} for a change of current, unless nothing listens to it.
+     *
+     * @return the new current, as changed by the listeners
+     */
+    public static int handleRedstoneChange(Level world, BlockPos pos, int oldCurrent, int newCurrent) {
+        if (!BlockRedstoneEvent.getHandlerList().hasRegisteredListeners()) {
+            return newCurrent;
+        }
+        return callRedstoneChange(world, pos, oldCurrent, newCurrent).getNewCurrent();
+    }
+    // Paper end - skip unheard events
+
     public static NotePlayEvent callNotePlayEvent(Level world, BlockPos pos, NoteBlockInstrument instrument, int note) {
         NotePlayEvent event = new NotePlayEvent(CraftBlock.at(world, pos), org.bukkit.Instrument.getByType((byte) instrument.ordinal()), new org.bukkit.Note(note));
         world.getCraftServer().getPluginManager().callEvent(event);
@@ -25,6 +25,7 @@ package org.bukkit.craftbukkit.scheduler;
 
 import com.destroystokyo.paper.ServerSchedulerReportingWrapper;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.papermc.paper.util.concurrent.AsyncTaskExecutor;
 import org.bukkit.plugin.Plugin;
 
 import java.util.ArrayList;
@@ -41,6 +42,7 @@ public class CraftAsyncScheduler extends CraftScheduler {
     private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
             4, Integer.MAX_VALUE,30L, TimeUnit.SECONDS, new SynchronousQueue<>(),
             new ThreadFactoryBuilder().setNameFormat("Craft Scheduler Thread - %1$d").build());
+    private final AsyncTaskExecutor taskExecutor = new AsyncTaskExecutor("Craft Scheduler Virtual Thread", this.executor);
     private final Executor management = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
             .setNameFormat("Craft Async Scheduler Management Thread").build());
     private final List<CraftTask> temp = new ArrayList<>();
@@ -58,13 +60,10 @@ public class CraftAsyncScheduler extends CraftScheduler {
 
     private synchronized void removeTask(int taskId) {
         parsePending();
-        this.pending.removeIf((task) -> {
-            if (task.getTaskId() == taskId) {
-                task.cancel0();
-                return true;
-            }
-            return false;
-        });
+        final CraftTask task = this.pending.remove(taskId);
+        if (task != null) {
+            task.cancel0();
+        }
     }
 
     @Override
@@ -75,8 +74,8 @@ public class CraftAsyncScheduler extends CraftScheduler {
 
     private synchronized void runTasks(int currentTick) {
         parsePending();
-        while (!this.pending.isEmpty() && this.pending.peek().getNextRun() <= currentTick) {
-            CraftTask task = this.pending.remove();
+        while (this.pending.isReady(currentTick)) {
+            CraftTask task = this.pending.poll();
             if (executeTask(task)) {
                 final long period = task.getPeriod();
                 if (period > 0) {
@@ -86,14 +85,16 @@ public class CraftAsyncScheduler extends CraftScheduler {
             }
             parsePending();
         }
-        this.pending.addAll(temp);
+        for (CraftTask task : temp) {
+            this.pending.add(task);
+        }
         temp.clear();
     }
 
     private boolean executeTask(CraftTask task) {
         if (isValid(task)) {
             this.runners.put(task.getTaskId(), task);
-            this.executor.execute(new ServerSchedulerReportingWrapper(task));
+            this.taskExecutor.execute(task.getOwner(), new ServerSchedulerReportingWrapper(task));
             return true;
         }
         return false;
@@ -105,4 +105,11 @@ class CraftFuture<T> extends CraftTask implements Future<T> {
         this.notifyAll();
         return true;
     }
+
+    // Paper start - plugin profiler
+    @Override
+    Class<?> getTaskClass() {
+        return this.callable.getClass();
+    }
+    // Paper end - plugin profiler
 }
@@ -3,10 +3,8 @@ package org.bukkit.craftbukkit.scheduler;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
@@ -75,16 +73,7 @@ public class CraftScheduler implements BukkitScheduler {
     /**
      * Main thread logic only
      */
-    final PriorityQueue<CraftTask> pending = new PriorityQueue<CraftTask>(10, // Paper
-            new Comparator<CraftTask>() {
-                @Override
-                public int compare(final CraftTask o1, final CraftTask o2) {
-                    int value = Long.compare(o1.getNextRun(), o2.getNextRun());
-
-                    // If the tasks should run on the same tick they should be run FIFO
-                    return value != 0 ? value : Long.compare(o1.getCreatedAt(), o2.getCreatedAt());
-                }
-            });
+    final CraftTaskWheel pending = new CraftTaskWheel(); // Paper - task wheel
     /**
      * Main thread logic only
      */
@@ -278,7 +267,15 @@ public class CraftScheduler implements BukkitScheduler {
                     @Override
                     public void run() {
                         if (!this.check(CraftScheduler.this.temp)) {
-                            this.check(CraftScheduler.this.pending);
+                            // Paper start - task wheel
+                            final CraftTask task = CraftScheduler.this.pending.remove(taskId);
+                            if (task != null) {
+                                task.cancel0();
+                                if (task.isSync()) {
+                                    CraftScheduler.this.runners.remove(taskId);
+                                }
+                            }
+                            // Paper end - task wheel
                         }
                     }
                     private boolean check(final Iterable<CraftTask> collection) {
@@ -320,7 +317,9 @@ public class CraftScheduler implements BukkitScheduler {
                 new Runnable() {
                     @Override
                     public void run() {
-                        this.check(CraftScheduler.this.pending);
+                        if (CraftScheduler.this.pending.getTaskCount(plugin) != 0) { // Paper - task wheel
+                            this.check(CraftScheduler.this.pending);
+                        } // Paper - task wheel
                         this.check(CraftScheduler.this.temp);
                     }
                     void check(final Iterable<CraftTask> collection) {
@@ -455,12 +454,13 @@ public class CraftScheduler implements BukkitScheduler {
         // Paper start
         if (!this.isAsyncScheduler) {
             this.asyncScheduler.mainThreadHeartbeat();
+            io.papermc.paper.plugin.profiler.PluginProfiler.tick(); // Paper - plugin profiler
         }
         // Paper end
         final List<CraftTask> temp = this.temp;
         this.parsePending();
         while (this.isReady(this.currentTick)) {
-            final CraftTask task = this.pending.remove();
+            final CraftTask task = this.pending.poll(); // Paper - task wheel
             if (task.getPeriod() < CraftTask.NO_REPEATING) {
                 if (task.isSync()) {
                     this.runners.remove(task.getTaskId(), task);
@@ -470,6 +470,8 @@ public class CraftScheduler implements BukkitScheduler {
             }
             if (task.isSync()) {
                 this.currentTask = task;
+                final boolean profile = io.papermc.paper.plugin.profiler.PluginProfiler.isEnabled(); // Paper - plugin profiler
+                final long start = profile ? System.nanoTime() : 0L; // Paper - plugin profiler
                 try {
                     task.run();
                 } catch (final Throwable throwable) {
@@ -486,6 +488,11 @@ public class CraftScheduler implements BukkitScheduler {
                         new com.destroystokyo.paper.event.server.ServerExceptionEvent(new com.destroystokyo.paper.exception.ServerSchedulerException(logMessage, throwable, task)));
                     // Paper end
                 } finally {
+                    // Paper start - plugin profiler
+                    if (profile) {
+                        task.getProfilerEntry().record(System.nanoTime() - start);
+                    }
+                    // Paper end - plugin profiler
                     this.currentTask = null;
                 }
                 this.parsePending();
@@ -503,7 +510,11 @@ public class CraftScheduler implements BukkitScheduler {
                 this.runners.remove(task.getTaskId());
             }
         }
-        this.pending.addAll(temp);
+        // Paper start - task wheel
+        for (final CraftTask task : temp) {
+            this.pending.add(task);
+        }
+        // Paper end - task wheel
         temp.clear();
         //this.debugHead = this.debugHead.getNextHead(this.currentTick); // Paper
     }
@@ -564,7 +575,7 @@ public class CraftScheduler implements BukkitScheduler {
     }
 
     private boolean isReady(final int currentTick) {
-        return !this.pending.isEmpty() && this.pending.peek().getNextRun() <= currentTick;
+        return this.pending.isReady(currentTick); // Paper - task wheel
     }
 
     @Override
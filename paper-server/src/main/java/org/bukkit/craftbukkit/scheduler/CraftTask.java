@@ -29,6 +29,12 @@ public class CraftTask implements BukkitTask, Runnable { // Spigot
     private final Plugin plugin;
     private final int id;
     private final long createdAt = System.nanoTime();
+    private io.papermc.paper.plugin.profiler.PluginProfiler.Entry profilerEntry; // Paper - plugin profiler
+    // Paper start - task wheel
+    CraftTask wheelPrev;
+    CraftTask wheelNext;
+    int wheelSlot = CraftTaskWheel.NOT_QUEUED;
+    // Paper end - task wheel
 
     CraftTask() {
         this(null, null, CraftTask.NO_REPEATING, CraftTask.NO_REPEATING);
@@ -113,6 +119,15 @@ public class CraftTask implements BukkitTask, Runnable { // Spigot
         return (this.rTask != null) ? this.rTask.getClass() : ((this.cTask != null) ? this.cTask.getClass() : null);
     }
 
+    // Paper start - plugin profiler
+    io.papermc.paper.plugin.profiler.PluginProfiler.Entry getProfilerEntry() {
+        if (this.profilerEntry == null) {
+            this.profilerEntry = io.papermc.paper.plugin.profiler.PluginProfiler.entry(io.papermc.paper.plugin.profiler.PluginProfiler.Kind.SCHEDULER_TASK, this.plugin, io.papermc.paper.plugin.profiler.PluginProfiler.sourceName(this.getTaskClass()));
+        }
+        return this.profilerEntry;
+    }
+    // Paper end - plugin profiler
+
     @Override
     public boolean isCancelled() {
         return (this.period == CraftTask.CANCEL);
@@ -0,0 +1,229 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * The pending tasks of a scheduler, kept in a hierarchical timing wheel.
+ * <p>
+ * The wheel has {@link #LEVELS} levels of {@link #SLOTS} slots each, every level spanning {@link #SLOTS} times the
+ * ticks of the one below it; tasks too far ahead for the top level wait in an overflow slot. A task is linked into
+ * the slot of the lowest level that spans its next run, so adding and removing a task never depends on the number
+ * of pending tasks. Whenever the wheel enters a new slot of a level, the tasks of that slot are moved down into the
+ * levels below, and the tasks of the current slot of the lowest level become ready. Only the ready tasks are kept
+ * ordered, by their next run and then by the order they were created in, as the scheduler previously ordered all
+ * of its pending tasks.
+ * </p>
+ * <p>
+ * Tasks are also indexed by their id and counted by their plugin, so a task can be cancelled without searching
+ * for it and cancelling the tasks of a plugin without any is free.
+ * </p>
+ * <p>
+ * Not thread-safe, it is only used by the thread owning the pending tasks of its scheduler.
+ * </p>
+ */
+final class CraftTaskWheel implements Iterable<CraftTask> {
+
+    static final int NOT_QUEUED = -1;
+    static final int READY = -2;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int OVERFLOW = LEVELS * SLOTS;
+    private static final long OVERFLOW_DELAY = 1L << (SLOT_BITS * LEVELS);
+
+    static final Comparator<CraftTask> ORDER = (o1, o2) -> {
+        int value = Long.compare(o1.getNextRun(), o2.getNextRun());
+
+        // If the tasks should run on the same tick they should be run FIFO
+        return value != 0 ? value : Long.compare(o1.getCreatedAt(), o2.getCreatedAt());
+    };
+
+    // the first task of every slot, the overflow slot last
+    private final CraftTask[] slots = new CraftTask[OVERFLOW + 1];
+    private final PriorityQueue<CraftTask> ready = new PriorityQueue<>(ORDER);
+    private final Int2ObjectOpenHashMap<CraftTask> tasks = new Int2ObjectOpenHashMap<>();
+    private final Reference2IntOpenHashMap<Plugin> pluginTasks = new Reference2IntOpenHashMap<>();
+    // the tasks in slots, as opposed to ready
+    private int slotted;
+    // the initial tick of the schedulers, tasks running on or before the current tick are ready
+    private long tick = -1L;
+
+    void add(final CraftTask task) {
+        this.tasks.put(task.getTaskId(), task);
+        this.pluginTasks.addTo(task.getOwner(), 1);
+        this.schedule(task);
+    }
+
+    boolean isReady(final long tick) {
+        this.advance(tick);
+        return !this.ready.isEmpty() && this.ready.peek().getNextRun() <= tick;
+    }
+
+    /**
+     * Removes and returns the first ready task, should only be called after {@link #isReady(long)} returned
+     * {@code true}.
+     */
+    CraftTask poll() {
+        final CraftTask task = this.ready.remove();
+        task.wheelSlot = NOT_QUEUED;
+        this.forget(task);
+        return task;
+    }
+
+    /**
+     * Removes the pending task with the specified id.
+     *
+     * @return the removed task, or {@code null} if there is no pending task with the id
+     */
+    CraftTask remove(final int taskId) {
+        final CraftTask task = this.tasks.remove(taskId);
+        if (task == null) {
+            return null;
+        }
+        this.unlink(task);
+        this.decrementPluginTasks(task.getOwner());
+        return task;
+    }
+
+    int getTaskCount(final Plugin plugin) {
+        return this.pluginTasks.getInt(plugin);
+    }
+
+    int size() {
+        return this.tasks.size();
+    }
+
+    boolean isEmpty() {
+        return this.tasks.isEmpty();
+    }
+
+    /**
+     * Iterates over the pending tasks in no particular order. Removing a task through the iterator removes it from
+     * the wheel.
+     */
+    @Override
+    public Iterator<CraftTask> iterator() {
+        final ObjectIterator<CraftTask> iterator = this.tasks.values().iterator();
+        return new Iterator<>() {
+            private CraftTask last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public CraftTask next() {
+                return this.last = iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                CraftTaskWheel.this.unlink(this.last);
+                CraftTaskWheel.this.decrementPluginTasks(this.last.getOwner());
+            }
+        };
+    }
+
+    private void schedule(final CraftTask task) {
+        final long nextRun = task.getNextRun();
+        if (nextRun <= this.tick) {
+            task.wheelSlot = READY;
+            this.ready.add(task);
+            return;
+        }
+        final long delay = nextRun - this.tick;
+        final int slot;
+        if (delay >= OVERFLOW_DELAY) {
+            slot = OVERFLOW;
+        } else {
+            final int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(delay)) / SLOT_BITS;
+            slot = level * SLOTS + (int)((nextRun >> (level * SLOT_BITS)) & SLOT_MASK);
+        }
+        final CraftTask head = this.slots[slot];
+        task.wheelSlot = slot;
+        task.wheelPrev = null;
+        task.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = task;
+        }
+        this.slots[slot] = task;
+        ++this.slotted;
+    }
+
+    private void unlink(final CraftTask task) {
+        final int slot = task.wheelSlot;
+        if (slot == READY) {
+            this.ready.remove(task);
+        } else if (slot != NOT_QUEUED) {
+            final CraftTask prev = task.wheelPrev;
+            final CraftTask next = task.wheelNext;
+            if (prev == null) {
+                this.slots[slot] = next;
+            } else {
+                prev.wheelNext = next;
+            }
+            if (next != null) {
+                next.wheelPrev = prev;
+            }
+            task.wheelPrev = null;
+            task.wheelNext = null;
+            --this.slotted;
+        }
+        task.wheelSlot = NOT_QUEUED;
+    }
+
+    private void forget(final CraftTask task) {
+        this.tasks.remove(task.getTaskId());
+        this.decrementPluginTasks(task.getOwner());
+    }
+
+    private void decrementPluginTasks(final Plugin plugin) {
+        if (this.pluginTasks.addTo(plugin, -1) == 1) {
+            this.pluginTasks.removeInt(plugin);
+        }
+    }
+
+    private void advance(final long tick) {
+        while (this.tick < tick) {
+            if (this.slotted == 0) {
+                // nothing to move down or make ready on the way
+                this.tick = tick;
+                return;
+            }
+            final long next = ++this.tick;
+            if ((next & (OVERFLOW_DELAY - 1L)) == 0L) {
+                this.cascade(OVERFLOW);
+            }
+            for (int level = LEVELS - 1; level > 0; --level) {
+                if ((next & ((1L << (level * SLOT_BITS)) - 1L)) == 0L) {
+                    this.cascade(level * SLOTS + (int)((next >> (level * SLOT_BITS)) & SLOT_MASK));
+                }
+            }
+            // every task of the current slot of the lowest level runs on this tick
+            this.cascade((int)(next & SLOT_MASK));
+        }
+    }
+
+    private void cascade(final int slot) {
+        CraftTask task = this.slots[slot];
+        this.slots[slot] = null;
+        while (task != null) {
+            final CraftTask next = task.wheelNext;
+            task.wheelPrev = null;
+            task.wheelNext = null;
+            --this.slotted;
+            this.schedule(task);
+            task = next;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.papermc.paper.entity.ai;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.pathfinder.Node;
+import net.minecraft.world.level.pathfinder.Path;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@Normal
+public class AiTickBudgetTest {
+
+    private static final int MOBS = 100;
+    private static final int TICKS = 1_000;
+    private static final long BUDGET = TimeUnit.MILLISECONDS.toNanos(10L);
+    private static final int MAX_INTERVAL = 4;
+    private static final BlockPos TARGET = new BlockPos(100, 64, 100);
+
+    private static AiTickBudget budget() {
+        // the level is only used to read the configuration, which these tests pass directly
+        return new AiTickBudget(null);
+    }
+
+    private static Path path() {
+        return new Path(List.of(new Node(0, 64, 0), new Node(1, 64, 0)), TARGET, true);
+    }
+
+    @Test
+    public void testIntervalGrowsOverBudget() {
+        final AiTickBudget budget = budget();
+        assertEquals(1, budget.getInterval());
+        for (int i = 2; i <= MAX_INTERVAL; ++i) {
+            budget.updateInterval(BUDGET * 2L, BUDGET, MAX_INTERVAL);
+            assertEquals(i, budget.getInterval(), "interval grows by a tick every tick over budget");
+        }
+        budget.updateInterval(BUDGET * 2L, BUDGET, MAX_INTERVAL);
+        assertEquals(MAX_INTERVAL, budget.getInterval(), "interval does not grow past the maximum");
+    }
+
+    @Test
+    public void testIntervalShrinksWithinBudget() {
+        final AiTickBudget budget = budget();
+        for (int i = 0; i < MAX_INTERVAL; ++i) {
+            budget.updateInterval(BUDGET * 2L, BUDGET, MAX_INTERVAL);
+        }
+
+        budget.updateInterval(BUDGET * 9L / 10L, BUDGET, MAX_INTERVAL);
+        assertEquals(MAX_INTERVAL, budget.getInterval(), "interval is kept while just within the budget");
+
+        budget.updateInterval(BUDGET / 2L, BUDGET, MAX_INTERVAL);
+        assertEquals(MAX_INTERVAL - 1, budget.getInterval(), "interval shrinks by a tick once comfortably within the budget");
+        for (int i = 0; i < MAX_INTERVAL; ++i) {
+            budget.updateInterval(BUDGET / 2L, BUDGET, MAX_INTERVAL);
+        }
+        assertEquals(1, budget.getInterval(), "interval does not shrink below a tick");
+    }
+
+    @Test
+    public void testIntervalFollowsLoweredMaximum() {
+        final AiTickBudget budget = budget();
+        for (int i = 0; i < MAX_INTERVAL; ++i) {
+            budget.updateInterval(BUDGET * 2L, BUDGET, MAX_INTERVAL);
+        }
+        budget.updateInterval(BUDGET * 9L / 10L, BUDGET, 2);
+        assertEquals(2, budget.getInterval());
+    }
+
+    @Test
+    public void testMobsNearPlayersAreNeverDeferred() {
+        final AiTickBudget budget = budget();
+        for (int i = 0; i < MAX_INTERVAL; ++i) {
+            budget.updateInterval(BUDGET * 2L, BUDGET, MAX_INTERVAL);
+        }
+
+        for (final AiTickBudget.Work work : AiTickBudget.Work.values()) {
+            int distantRan = 0;
+            for (int tickCount = 0; tickCount < TICKS; ++tickCount) {
+                assertTrue(budget.admit(work, true, 1, tickCount), work + " of a mob near a player was deferred at tick " + tickCount);
+                if (budget.admit(work, false, 1, tickCount)) {
+                    ++distantRan;
+                }
+            }
+            assertTrue(distantRan < TICKS / 2, work + " of a distant mob was not deferred");
+        }
+    }
+
+    @Test
+    public void testKeepCurrentPathForCloseTargets() {
+        final Set<BlockPos> close = Set.of(TARGET.east(), TARGET.above(2));
+        assertTrue(AiTickBudget.keepCurrentPath(path(), TARGET, close, () -> false), "path is kept while recomputation is deferred");
+        assertFalse(AiTickBudget.keepCurrentPath(path(), TARGET, close, () -> true), "path is recomputed when there is budget");
+    }
+
+    @Test
+    public void testPathRecomputedForDistantTargets() {
+        final Set<BlockPos> targets = Set.of(TARGET.east(), TARGET.east(10));
+        assertFalse(AiTickBudget.keepCurrentPath(path(), TARGET, targets, () -> fail("recomputation for a new target is never deferred")));
+    }
+
+    @Test
+    public void testPathRecomputedWithoutCurrentPath() {
+        final Set<BlockPos> targets = Set.of(TARGET);
+        assertFalse(AiTickBudget.keepCurrentPath(null, TARGET, targets, () -> false));
+        assertFalse(AiTickBudget.keepCurrentPath(path(), null, targets, () -> false));
+
+        final Path done = new Path(List.of(), TARGET, true);
+        assertTrue(done.isDone());
+        assertFalse(AiTickBudget.keepCurrentPath(done, TARGET, targets, () -> false));
+
+        assertFalse(AiTickBudget.keepCurrentPath(path(), TARGET, targets), "paths are always recomputed outside of entity ticking");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 8})
+    public void testGoalSelectionIsNeverStarved(final int interval) {
+        for (int id = 0; id < MOBS; ++id) {
+            int goalTicks = 0;
+            int lastAdmitted = -1;
+            for (int tickCount = 0; tickCount < TICKS; ++tickCount) {
+                // same phase as Mob#serverAiStep, which only ticks goal selectors on every other tick
+                if ((tickCount + id) % 2 != 0) {
+                    continue;
+                }
+                if (AiTickBudget.isDue(AiTickBudget.Work.GOAL_SELECTION, id, tickCount, interval)) {
+                    assertTrue(goalTicks - lastAdmitted <= interval, "Mob " + id + " waited more than " + interval + " goal ticks at tick " + tickCount);
+                    lastAdmitted = goalTicks;
+                }
+                ++goalTicks;
+            }
+            assertTrue(lastAdmitted >= 0, "Mob " + id + " never selected goals with interval " + interval);
+            assertTrue(goalTicks - lastAdmitted <= interval, "Mob " + id + " stopped selecting goals with interval " + interval);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 8})
+    public void testSensorsRunOncePerInterval(final int interval) {
+        for (int id = 0; id < MOBS; ++id) {
+            int admitted = 0;
+            int lastAdmitted = -1;
+            for (int tickCount = 0; tickCount < TICKS; ++tickCount) {
+                if (AiTickBudget.isDue(AiTickBudget.Work.SENSOR, id, tickCount, interval)) {
+                    assertTrue(tickCount - lastAdmitted <= interval, "Mob " + id + " waited more than " + interval + " ticks at tick " + tickCount);
+                    lastAdmitted = tickCount;
+                    ++admitted;
+                }
+            }
+            assertTrue(Math.abs(admitted - TICKS / interval) <= 1, "Mob " + id + " sensed " + admitted + " times with interval " + interval);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.papermc.paper.network;
+
+import java.util.concurrent.TimeUnit;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Normal
+public class AdaptiveChunkSendRateTest {
+
+    private static final int RTT = 50;
+    private static final long FLUSH_LATENCY = TimeUnit.MILLISECONDS.toNanos(5L);
+
+    private static AdaptiveChunkSendRate sendRate(final double initialRate) {
+        // the player is only used to sample the connection, which these tests do not
+        return new AdaptiveChunkSendRate(null, initialRate);
+    }
+
+    @Test
+    public void testRateGrowsWithoutCongestion() {
+        final AdaptiveChunkSendRate sendRate = sendRate(50.0);
+        sendRate.adjust(false, RTT, FLUSH_LATENCY, 100);
+        assertTrue(sendRate.getSendRate() > 50.0, "rate grows while chunks are waiting");
+
+        final double rate = sendRate.getSendRate();
+        sendRate.adjust(false, RTT, FLUSH_LATENCY, 0);
+        assertEquals(rate, sendRate.getSendRate(), "rate does not grow without chunks waiting");
+    }
+
+    @Test
+    public void testRisingFlushLatencyLowersRate() {
+        final AdaptiveChunkSendRate sendRate = sendRate(50.0);
+        for (int i = 0; i < 5; ++i) {
+            sendRate.adjust(false, RTT, FLUSH_LATENCY, 100);
+        }
+        final double rate = sendRate.getSendRate();
+
+        // the keepalive RTT has not caught up yet, only the flush latency shows the congestion
+        sendRate.adjust(false, RTT, FLUSH_LATENCY + TimeUnit.MILLISECONDS.toNanos(20L), 100);
+        assertTrue(sendRate.getSendRate() > rate, "flush latency within the allowance does not lower the rate");
+
+        final double beforeCongestion = sendRate.getSendRate();
+        sendRate.adjust(false, RTT, TimeUnit.MILLISECONDS.toNanos(250L), 100);
+        assertTrue(sendRate.getSendRate() < beforeCongestion, "rising flush latency lowers the rate");
+
+        final double congested = sendRate.getSendRate();
+        sendRate.adjust(false, RTT, TimeUnit.MILLISECONDS.toNanos(500L), 100);
+        assertTrue(sendRate.getSendRate() < congested, "the rate keeps falling while flush latency stays high");
+
+        final double recovered = sendRate.getSendRate();
+        sendRate.adjust(false, RTT, FLUSH_LATENCY, 100);
+        assertTrue(sendRate.getSendRate() > recovered, "the rate grows again once flush latency recovers");
+    }
+
+    @Test
+    public void testBacklogAndRttLowerRate() {
+        final AdaptiveChunkSendRate sendRate = sendRate(100.0);
+        sendRate.adjust(true, RTT, FLUSH_LATENCY, 100);
+        assertTrue(sendRate.getSendRate() < 100.0, "a backlogged channel lowers the rate");
+
+        final double rate = sendRate.getSendRate();
+        sendRate.adjust(false, 4 * RTT + 100, FLUSH_LATENCY, 100);
+        assertTrue(sendRate.getSendRate() < rate, "inflated RTT lowers the rate");
+    }
+
+    @Test
+    public void testUnknownLatenciesAreIgnored() {
+        final AdaptiveChunkSendRate sendRate = sendRate(50.0);
+        sendRate.adjust(false, 0, 0L, 100);
+        assertTrue(sendRate.getSendRate() > 50.0);
+    }
+}
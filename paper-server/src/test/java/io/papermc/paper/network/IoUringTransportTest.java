@@ -0,0 +1,61 @@
+package io.papermc.paper.network;
+
+import io.netty.channel.unix.DomainSocketAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Normal
+public class IoUringTransportTest {
+
+    private static final SocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 25565);
+
+    @Test
+    public void testUsedWhenEnabledAndAvailable() {
+        assertTrue(IoUringTransport.shouldUse(ADDRESS, true, true, () -> true));
+    }
+
+    @Test
+    public void testNotUsedForDomainSockets() {
+        final SocketAddress address = new DomainSocketAddress("/tmp/paper.sock");
+        assertFalse(IoUringTransport.shouldUse(address, true, true, () -> true), "io_uring has no domain socket channel");
+    }
+
+    @Test
+    public void testNotUsedWithNativeTransportDisabled() {
+        assertFalse(IoUringTransport.shouldUse(ADDRESS, false, true, () -> true));
+    }
+
+    @Test
+    public void testNotUsedWhenDisabled() {
+        assertFalse(IoUringTransport.shouldUse(ADDRESS, true, false, () -> true));
+    }
+
+    @Test
+    public void testNotUsedWhenUnavailable() {
+        assertFalse(IoUringTransport.shouldUse(ADDRESS, true, true, () -> false));
+    }
+
+    @Test
+    public void testLinkageErrorFallsBack() {
+        assertFalse(IoUringTransport.isAvailable(() -> {
+            throw new UnsatisfiedLinkError("no netty_transport_native_io_uring in java.library.path");
+        }));
+        assertFalse(IoUringTransport.isAvailable(() -> {
+            throw new NoClassDefFoundError("io/netty/incubator/channel/uring/Native");
+        }));
+        assertFalse(IoUringTransport.shouldUse(ADDRESS, true, true, () -> {
+            throw new UnsatisfiedLinkError();
+        }), "a platform without the natives falls back to the default transport");
+    }
+
+    @Test
+    public void testProbeOnThisSystemDoesNotThrow() {
+        assertDoesNotThrow(() -> IoUringTransport.isAvailable());
+    }
+}
@@ -0,0 +1,101 @@
+package io.papermc.paper.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.chunk.storage.RegionFile;
+import net.minecraft.world.level.chunk.storage.RegionFileVersion;
+import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Normal
+public class RegionFileMappingTest {
+
+    private static final ChunkPos FIRST = new ChunkPos(0, 0);
+    private static final ChunkPos SECOND = new ChunkPos(1, 0);
+
+    @TempDir
+    Path folder;
+
+    private Path path;
+
+    private RegionFile open() throws IOException {
+        this.path = this.folder.resolve("r.0.0.mca");
+        return new RegionFile(new RegionStorageInfo("test", Level.OVERWORLD, "chunk"), this.path, this.folder, RegionFileVersion.VERSION_DEFLATE, false);
+    }
+
+    private static CompoundTag tag(final int value) {
+        final CompoundTag ret = new CompoundTag();
+        ret.putInt("value", value);
+        return ret;
+    }
+
+    private static void write(final RegionFile regionFile, final ChunkPos pos, final CompoundTag tag) throws IOException {
+        try (DataOutputStream out = regionFile.getChunkDataOutputStream(pos)) {
+            NbtIo.write(tag, out);
+        }
+    }
+
+    private static CompoundTag readMapped(final RegionFile regionFile, final ChunkPos pos) throws IOException {
+        try (DataInputStream in = regionFile.getChunkDataInputStreamMapped(pos)) {
+            return in == null ? null : NbtIo.read(in);
+        }
+    }
+
+    private void truncate(final long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    @Test
+    public void testReadAfterTruncate() throws IOException {
+        try (RegionFile regionFile = this.open()) {
+            write(regionFile, FIRST, tag(1));
+            final long sizeWithFirst = Files.size(this.path);
+            // the second chunk starts on the sector after the first one, past the current end of the file
+            write(regionFile, SECOND, tag(2));
+
+            // maps the whole file
+            assertEquals(tag(2), readMapped(regionFile, SECOND));
+
+            this.truncate(sizeWithFirst);
+            assertNull(readMapped(regionFile, SECOND), "sectors past the end of the file are not read from the stale mapping");
+            assertEquals(tag(1), readMapped(regionFile, FIRST), "sectors within the file are read from a new mapping");
+
+            regionFile.releaseMapping();
+        }
+    }
+
+    @Test
+    public void testOpenStreamFailsOnTruncate() throws IOException {
+        try (RegionFile regionFile = this.open()) {
+            write(regionFile, FIRST, tag(1));
+            final long sizeWithFirst = Files.size(this.path);
+            write(regionFile, SECOND, tag(2));
+
+            try (DataInputStream in = regionFile.getChunkDataInputStreamMapped(SECOND)) {
+                assertNotNull(in);
+                this.truncate(sizeWithFirst);
+                assertThrows(IOException.class, () -> NbtIo.read(in), "a stream reading a truncated page fails instead of crashing the server");
+            }
+
+            regionFile.releaseMapping();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.papermc.paper.world.chunk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Normal
+public class NativeSlabPoolTest {
+
+    private static final int SLAB_SIZE = 64 * 1024;
+
+    @Test
+    public void testBlocksAreCarvedFromSlabs() {
+        final NativeSlabPool pool = new NativeSlabPool(SLAB_SIZE);
+        final ByteBuffer first = pool.allocate(2048, 0L);
+        final ByteBuffer second = pool.allocate(2048, 0L);
+        assertTrue(first.isDirect());
+        assertEquals(ByteOrder.nativeOrder(), first.order());
+        assertEquals(2048, first.capacity());
+        assertEquals(SLAB_SIZE, pool.getReservedBytes(), "both blocks fit into one slab");
+
+        first.putLong(2040, -1L);
+        assertEquals(0L, second.getLong(0), "blocks do not overlap");
+
+        for (int i = 2; i < SLAB_SIZE / 2048; ++i) {
+            pool.allocate(2048, 0L);
+        }
+        assertEquals(SLAB_SIZE, pool.getReservedBytes());
+        pool.allocate(2048, 0L);
+        assertEquals(2L * SLAB_SIZE, pool.getReservedBytes(), "a full slab is followed by a new one");
+    }
+
+    @Test
+    public void testReleasedBlocksAreReusedAfterDelay() {
+        final NativeSlabPool pool = new NativeSlabPool(SLAB_SIZE);
+        final ByteBuffer block = pool.allocate(4096, 0L);
+        block.putLong(0, 42L);
+        pool.release(block, 100L);
+
+        final ByteBuffer early = pool.allocate(4096, 100L + NativeSlabPool.REUSE_DELAY - 1L);
+        assertNotSame(block, early, "a released block is not reused while readers may still read it");
+        assertEquals(42L, block.getLong(0), "a released block keeps its data until it is reused");
+
+        assertSame(block, pool.allocate(4096, 100L + NativeSlabPool.REUSE_DELAY));
+    }
+
+    @Test
+    public void testReleasedBlocksAreOnlyReusedForTheSameSize() {
+        final NativeSlabPool pool = new NativeSlabPool(SLAB_SIZE);
+        final ByteBuffer block = pool.allocate(4096, 0L);
+        pool.release(block, 0L);
+
+        final long time = NativeSlabPool.REUSE_DELAY;
+        assertNotSame(block, pool.allocate(2048, time));
+        assertSame(block, pool.allocate(4096, time));
+    }
+
+    @Test
+    public void testBlocksLargerThanASlab() {
+        final NativeSlabPool pool = new NativeSlabPool(SLAB_SIZE);
+        final ByteBuffer block = pool.allocate(SLAB_SIZE * 2, 0L);
+        assertEquals(SLAB_SIZE * 2, block.capacity());
+        assertEquals(2L * SLAB_SIZE, pool.getReservedBytes());
+    }
+}
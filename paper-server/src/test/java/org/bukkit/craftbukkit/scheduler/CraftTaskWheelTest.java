@@ -0,0 +1,128 @@
+package org.bukkit.craftbukkit.scheduler;
+
+import io.papermc.paper.plugin.PaperTestPlugin;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.support.environment.Normal;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Normal
+public class CraftTaskWheelTest {
+
+    private final Plugin plugin = new PaperTestPlugin("Test");
+    private int ids;
+
+    @Test
+    public void testTasksRunOnTheirTick() {
+        final CraftTaskWheel wheel = new CraftTaskWheel();
+        final Random random = new Random(0L);
+        final Map<Long, List<CraftTask>> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; ++i) {
+            // mostly short delays, with some spanning every level of the wheel
+            final long delay = random.nextInt(4) == 0 ? random.nextInt(300_000) : random.nextInt(100);
+            final CraftTask task = this.task(delay);
+            wheel.add(task);
+            expected.computeIfAbsent(task.getNextRun(), tick -> new ArrayList<>()).add(task);
+        }
+        assertEquals(20_000, wheel.getTaskCount(this.plugin));
+
+        for (long tick = 0L; tick < 300_000L; ++tick) {
+            final List<CraftTask> ran = new ArrayList<>();
+            while (wheel.isReady(tick)) {
+                ran.add(wheel.poll());
+            }
+            final List<CraftTask> due = expected.getOrDefault(tick, List.of());
+            assertEquals(due.size(), ran.size(), "tasks run on tick " + tick);
+            assertTrue(ran.containsAll(due), "tasks run on tick " + tick);
+            for (int i = 1; i < ran.size(); ++i) {
+                assertTrue(ran.get(i - 1).getCreatedAt() <= ran.get(i).getCreatedAt(), "tasks of the same tick run in creation order");
+            }
+        }
+        assertTrue(wheel.isEmpty());
+        assertEquals(0, wheel.getTaskCount(this.plugin));
+    }
+
+    @Test
+    public void testTasksAddedForTheCurrentTick() {
+        final CraftTaskWheel wheel = new CraftTaskWheel();
+        wheel.add(this.task(10L));
+        assertFalse(wheel.isReady(5L));
+
+        final CraftTask late = this.task(3L);
+        wheel.add(late);
+        assertTrue(wheel.isReady(5L));
+        assertSame(late, wheel.poll());
+        assertFalse(wheel.isReady(9L));
+        assertTrue(wheel.isReady(10L));
+    }
+
+    @Test
+    public void testFarAheadTask() {
+        final CraftTaskWheel wheel = new CraftTaskWheel();
+        final long delay = (1L << 24) + 5L;
+        final CraftTask task = this.task(delay);
+        wheel.add(task);
+        assertFalse(wheel.isReady(delay - 2L));
+        assertFalse(wheel.isReady(delay - 1L));
+        assertTrue(wheel.isReady(delay));
+        assertSame(task, wheel.poll());
+    }
+
+    @Test
+    public void testRemove() {
+        final CraftTaskWheel wheel = new CraftTaskWheel();
+        final CraftTask kept = this.task(5L);
+        final CraftTask removed = this.task(5L);
+        wheel.add(kept);
+        wheel.add(removed);
+
+        assertSame(removed, wheel.remove(removed.getTaskId()));
+        assertNull(wheel.remove(removed.getTaskId()));
+        assertEquals(1, wheel.getTaskCount(this.plugin));
+        assertTrue(wheel.isReady(5L));
+        assertSame(kept, wheel.poll());
+        assertFalse(wheel.isReady(5L));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        final CraftTaskWheel wheel = new CraftTaskWheel();
+        final Plugin other = new PaperTestPlugin("Other");
+        final CraftTask kept = new CraftTask(other, (Runnable) () -> {}, ++this.ids, CraftTask.NO_REPEATING);
+        kept.setNextRun(100L);
+        wheel.add(kept);
+        for (int i = 0; i < 100; ++i) {
+            wheel.add(this.task(i * 50L));
+        }
+        assertTrue(wheel.isReady(0L));
+
+        for (final Iterator<CraftTask> iterator = wheel.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getOwner() == this.plugin) {
+                iterator.remove();
+            }
+        }
+        assertEquals(0, wheel.getTaskCount(this.plugin));
+        assertEquals(1, wheel.getTaskCount(other));
+        assertFalse(wheel.isReady(99L));
+        assertTrue(wheel.isReady(100L));
+        assertSame(kept, wheel.poll());
+        assertTrue(wheel.isEmpty());
+    }
+
+    private CraftTask task(final long nextRun) {
+        final CraftTask task = new CraftTask(this.plugin, (Runnable) () -> {}, ++this.ids, CraftTask.NO_REPEATING);
+        task.setNextRun(nextRun);
+        return task;
+    }
+}